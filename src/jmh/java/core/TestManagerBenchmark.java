@@ -0,0 +1,34 @@
+package core;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of resolving the manager of the current thread, done by every page object call
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TestManagerBenchmark {
+
+    private TestManager manager;
+
+    @Setup
+    public void createManager() {
+        manager = new TestManager();
+    }
+
+    @TearDown
+    public void quitManager() {
+        manager.quit();
+    }
+
+    @Benchmark
+    public TestManager getActualInstance() {
+        return TestManager.getActualInstance();
+    }
+}
@@ -0,0 +1,56 @@
+package core.listeners;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.appender.NullAppender;
+import org.apache.logging.log4j.core.config.LoggerConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Header formatting done by ClassListener around every test<br>
+ * Headers are logged through the {@literal core.listeners.ClassListener.header} logger, during the run its console
+ * appender is swapped for a no-op one, so {@literal printHeader} measures formatting and the logger call, not the console
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassListenerBenchmark {
+
+    private static final String MESSAGE = "Starting test Tests.PetStoreSwagger_Test.addNewPetTest";
+    private static final String HEADER_LOGGER = ClassListener.class.getName() + ".header";
+
+    private LoggerContext context;
+
+    @Setup
+    public void muteHeaderLogger() {
+        context = (LoggerContext) LogManager.getContext(false);
+        LoggerConfig config = context.getConfiguration().getLoggerConfig(HEADER_LOGGER);
+        if (!config.getName().equals(HEADER_LOGGER))
+            throw new IllegalStateException("log4j2.xml has no " + HEADER_LOGGER + " logger");
+        for (String appender : config.getAppenders().keySet())
+            config.removeAppender(appender);
+        config.addAppender(NullAppender.createAppender("NoOp"), Level.INFO, null);
+        context.updateLoggers();
+    }
+
+    @TearDown
+    public void restoreHeaderLogger() {
+        context.reconfigure();
+    }
+
+    @Benchmark
+    public String padMessageToPrettyLength() {
+        return ClassListener.padMessageToPrettyLength(MESSAGE);
+    }
+
+    @Benchmark
+    public void printHeader() {
+        ClassListener.printHeader(MESSAGE);
+    }
+}
@@ -0,0 +1,29 @@
+package data;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test data lookup as done by the PetStorePage constructor
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataUtilsBenchmark {
+
+    @Benchmark
+    public void readPetData(Blackhole blackhole) {
+        DataUtils data = new DataUtils();
+        blackhole.consume(data.getInvalidID());
+        blackhole.consume(data.getPhotoURL());
+        blackhole.consume(data.getName());
+        blackhole.consume(data.getNewName());
+        blackhole.consume(data.getCategory());
+        blackhole.consume(data.getTag());
+    }
+}
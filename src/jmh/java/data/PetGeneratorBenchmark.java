@@ -0,0 +1,39 @@
+package data;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pet generation as done by the PetStorePage constructor, compared with the former lookup of test-data.properties
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PetGeneratorBenchmark {
+
+    private PetGenerator generator;
+    private long n;
+
+    @Setup
+    public void setUp() {
+        generator = PetGenerator.forCurrentThread();
+    }
+
+    @Benchmark
+    public void generatePet(Blackhole blackhole) {
+        blackhole.consume(generator.pet(n));
+        n = (n + 1) % 1000;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void generatePetConcurrently(Blackhole blackhole) {
+        blackhole.consume(generator.pet(n));
+        n = (n + 1) % 1000;
+    }
+}
@@ -0,0 +1,84 @@
+package data;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import data.pojo.Category;
+import data.pojo.Pet;
+import data.pojo.Tag;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pet to JSON as done by PetStorePage.setNewPetCorrectData() before and with PetCodec, and back as done by PetFileReader
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PetSerializationBenchmark {
+
+    private final Gson sharedGson = new GsonBuilder().create();
+    private Pet pet;
+    private String json;
+
+    @Setup
+    public void buildPet() {
+        Category category = new Category();
+        category.setId(48151);
+        category.setName("Guard category");
+
+        Tag tag = new Tag();
+        tag.setId(48151);
+        tag.setName("Guard");
+
+        pet = new Pet();
+        pet.setId(48151);
+        pet.setName("Butch");
+        pet.setStatus("available");
+        pet.setCategory(category);
+        pet.setTags(Arrays.asList(tag));
+        pet.setPhotoUrls(Arrays.asList("https://placedog.net/640/480?random"));
+        json = sharedGson.toJson(pet);
+    }
+
+    @Benchmark
+    public String newGsonPerCall() {
+        Gson gson = new GsonBuilder().create();
+        return gson.toJson(pet);
+    }
+
+    @Benchmark
+    public String sharedGson() {
+        return sharedGson.toJson(pet);
+    }
+
+    @Benchmark
+    public String codec() {
+        return PetCodec.toJson(pet);
+    }
+
+    @Benchmark
+    public byte[] sharedGsonBytes() {
+        return sharedGson.toJson(pet).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] codecBytes() {
+        return PetCodec.toJsonBytes(pet);
+    }
+
+    @Benchmark
+    public Pet sharedGsonRead() {
+        return sharedGson.fromJson(json, Pet.class);
+    }
+
+    @Benchmark
+    public Pet codecRead() {
+        return PetCodec.fromJson(json);
+    }
+}
@@ -0,0 +1,108 @@
+package pages;
+
+import core.json.JsonExpectations;
+import data.PetCodec;
+import data.PetExpectations;
+import data.PetGenerator;
+import data.pojo.Pet;
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.response.Response;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Response body assertions of PetStorePage on canned responses, without network<br>
+ * {@literal bodyMatchers*} are the RestAssured {@literal .body(path, matcher)} chains the page used before,
+ * {@literal petExpectations*} are the streaming PetExpectations checks of checkNewIDExist() and checkPetListedByStatus() now
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseAssertionBenchmark {
+
+    private static final String STATUS = "available";
+
+    private Pet pet;
+    private Response petResponse;
+
+    /**
+     * findByStatus body of {@literal listSize} pets of one status, the pet under test is the last one
+     */
+    @State(Scope.Thread)
+    public static class PetList {
+
+        @Param({"100", "5000"})
+        private int listSize;
+
+        private Pet pet;
+        private Response response;
+
+        @Setup
+        public void buildResponse() {
+            List<Pet> pets = PetGenerator.forStream(0).stream(listSize).collect(Collectors.toList());
+            pets.forEach(listed -> listed.setStatus(STATUS));
+            pet = pets.get(pets.size() - 1);
+            response = response(PetCodec.gson().toJson(pets));
+        }
+    }
+
+    @Setup
+    public void buildResponse() {
+        pet = PetGenerator.forStream(0).pet(0);
+        petResponse = response(PetCodec.toJson(pet));
+    }
+
+    private static Response response(String body) {
+        return new ResponseBuilder()
+                .setStatusCode(200)
+                .setContentType("application/json")
+                .setBody(body)
+                .build();
+    }
+
+    @Benchmark
+    public Object bodyMatchers() {
+        return petResponse.then()
+                .assertThat()
+                .statusCode(200)
+                .body("id", equalTo(pet.getId()))
+                .body("name", equalToCompressingWhiteSpace(pet.getName()))
+                .body("status", equalToCompressingWhiteSpace(pet.getStatus()))
+                .body("category.id", equalTo(pet.getCategory().getId()))
+                .body("category.name", equalTo(pet.getCategory().getName()))
+                .body("tags[0].id", equalTo(pet.getTags().get(0).getId()))
+                .body("tags[0].name", equalTo(pet.getTags().get(0).getName()))
+                .body("photoUrls[0]", containsStringIgnoringCase(pet.getPhotoUrls().get(0)));
+    }
+
+    @Benchmark
+    public JsonExpectations petExpectations() {
+        JsonExpectations expectations = PetExpectations.of(pet);
+        expectations.verify(petResponse);
+        return expectations;
+    }
+
+    @Benchmark
+    public Object bodyMatchersByStatus(PetList list) {
+        return list.response.then()
+                .assertThat()
+                .statusCode(200)
+                .body("status", everyItem(equalTo(STATUS)))
+                .body("id", hasItem(list.pet.getId()));
+    }
+
+    @Benchmark
+    public JsonExpectations petExpectationsByStatus(PetList list) {
+        JsonExpectations expectations = PetExpectations.listed(list.pet, STATUS);
+        expectations.verify(list.response);
+        return expectations;
+    }
+}
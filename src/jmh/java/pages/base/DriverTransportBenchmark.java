@@ -0,0 +1,89 @@
+package pages.base;
+
+import core.CdpChannel;
+import org.openjdk.jmh.annotations.*;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-action latency of page object element actions side by side per {@literal transport}, as {@literal BasePage} runs them:
+ * over WebDriver on handles cached by an earlier snapshot (one call to ChromeDriver per WebDriver command), and over the DevTools
+ * channel (one evaluate that finds, checks and prepares the element, plus one round-trip for the input events of click and typing) <br>
+ * Needs Chrome and chromedriver (-Dwebdriver.chrome.driver or PATH), runs headless against a local page
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DriverTransportBenchmark {
+
+    private static final String PAGE = "data:text/html,<textarea id='text'></textarea>"
+            + "<button id='button' onclick=\"document.getElementById('count').textContent++\">Execute</button><span id='count'>0</span>";
+    private static final String TEXT = "//*[@id='text']";
+    private static final String BUTTON = "//*[@id='button']";
+    private static final List<String> SNAPSHOT = Arrays.asList(TEXT, BUTTON, "//*[@id='count']");
+
+    @Param({"webdriver", "cdp"})
+    public String transport;
+
+    private WebDriver driver;
+    private CdpChannel channel;
+    private WebElement text;
+    private WebElement button;
+
+    @Setup
+    public void startChrome() {
+        ChromeOptions options = new ChromeOptions();
+        options.addArguments("headless", "disable-gpu");
+        driver = new ChromeDriver(options);
+        driver.get(PAGE);
+        if ("cdp".equals(transport)) {
+            channel = CdpChannel.open(driver);
+            if (channel == null)
+                throw new IllegalStateException("No DevTools channel to Chrome");
+        } else {
+            text = driver.findElement(By.xpath(TEXT));
+            button = driver.findElement(By.xpath(BUTTON));
+        }
+    }
+
+    @TearDown
+    public void quitChrome() {
+        driver.quit();
+    }
+
+    @Benchmark
+    public void click() {
+        if (channel != null)
+            CdpElements.click(channel, BUTTON);
+        else
+            button.click();
+    }
+
+    @Benchmark
+    public void setValue() {
+        if (channel != null) {
+            CdpElements.setValue(channel, TEXT, "{\"id\": 1}");
+        } else {
+            text.clear();
+            text.sendKeys("{\"id\": 1}");
+        }
+    }
+
+    @Benchmark
+    public Object snapshot() {
+        if (channel != null)
+            return CdpElements.snapshot(channel, SNAPSHOT);
+        return ((JavascriptExecutor) driver).executeScript(BasePage.SNAPSHOT_SCRIPT, SNAPSHOT, true);
+    }
+}
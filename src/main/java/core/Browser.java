@@ -5,7 +5,8 @@ public enum Browser {
     FIREFOX("firefox"),
     INTERNET_EXPLORER("ie"),
     CHROME_HEADLESS("headless"),
-    CHROME_INCOGNITO("incognito");
+    CHROME_INCOGNITO("incognito"),
+    NONE("none");
 
     private final String text;
 
@@ -0,0 +1,111 @@
+package core;
+
+import org.apache.logging.log4j.LogManager;
+import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chrome.ChromeOptions;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Performance profiles of Chrome sessions, chosen by the suite parameter {@literal profile} or -Dbrowser.profile <br>
+ * default - normal page load strategy, everything is loaded <br>
+ * fast - eager page load strategy (DOM ready), no images, fonts and analytics, no background networking and extensions,
+ * HTTP disk cache in {@literal browser.cacheDir} (default target/chrome-cache) shared by all sessions <br>
+ * fastest - as fast, but navigation does not wait at all, pages wait for the DOM themselves, see {@literal BasePage.open} <br>
+ * Blocked URL patterns ({@literal browser.block}, comma separated, * is a wildcard) are set through CDP on every lease of a session
+ */
+public enum BrowserProfile {
+    DEFAULT("default", PageLoadStrategy.NORMAL, false),
+    FAST("fast", PageLoadStrategy.EAGER, true),
+    FASTEST("fastest", PageLoadStrategy.NONE, true);
+
+    private static final org.apache.logging.log4j.Logger log = LogManager.getLogger(BrowserProfile.class);
+
+    private static final List<String> DEFAULT_BLOCKED_URLS = Arrays.asList(
+            "*.png", "*.jpg", "*.jpeg", "*.gif", "*.svg", "*.ico", "*.woff", "*.woff2", "*.ttf",
+            "*google-analytics.com*", "*googletagmanager.com*", "*doubleclick.net*");
+    private static final String CACHE_DIR = System.getProperty("browser.cacheDir", "target" + File.separator + "chrome-cache");
+
+    private final String text;
+    private final PageLoadStrategy pageLoadStrategy;
+    private final boolean lightweight;
+
+    BrowserProfile(String text, PageLoadStrategy pageLoadStrategy, boolean lightweight) {
+        this.text = text;
+        this.pageLoadStrategy = pageLoadStrategy;
+        this.lightweight = lightweight;
+    }
+
+    public String get() {
+        return this.text;
+    }
+
+    @Override
+    public String toString() {
+        return this.text;
+    }
+
+    public static BrowserProfile findByString(String str) {
+        for (BrowserProfile v : values()) {
+            if (v.get().equals(str)) {
+                return v;
+            }
+        }
+        throw new IllegalArgumentException("Unknown browser profile '" + str + "', use one of " + Arrays.toString(values()));
+    }
+
+    public PageLoadStrategy getPageLoadStrategy() {
+        return pageLoadStrategy;
+    }
+
+    /**
+     * Add the profile to options of a new Chrome
+     *
+     * @param options - options Chrome is started with
+     * @param prefs   - Chrome preferences, set as experimental option "prefs" by the caller afterwards
+     */
+    public void apply(ChromeOptions options, Map<String, Object> prefs) {
+        options.setPageLoadStrategy(pageLoadStrategy);
+        if (!lightweight)
+            return;
+        options.addArguments("disable-background-networking", "disable-extensions", "disable-component-update",
+                "disable-default-apps", "disable-sync", "no-first-run", "mute-audio");
+        options.addArguments("disk-cache-dir=" + new File(CACHE_DIR).getAbsolutePath());
+        prefs.put("profile.managed_default_content_settings.images", 2);
+    }
+
+    /**
+     * Block URL patterns in a started or reused session, sessions of other profiles are never shared, see {@literal DriverPool}
+     *
+     * @param driver - leased Chrome
+     */
+    public void afterLease(WebDriver driver) {
+        if (!lightweight || !Cdp.isSupported(driver))
+            return;
+        try {
+            Cdp.execute(driver, "Network.enable", Collections.emptyMap());
+            Cdp.execute(driver, "Network.setBlockedURLs", Collections.singletonMap("urls", blockedUrls()));
+        } catch (WebDriverException e) {
+            log.warn("Could not block URLs for profile '" + this + "': " + e.getMessage());
+        }
+    }
+
+    private static List<String> blockedUrls() {
+        String patterns = System.getProperty("browser.block");
+        if (patterns == null)
+            return DEFAULT_BLOCKED_URLS;
+        List<String> urls = new ArrayList<>();
+        for (String pattern : patterns.split(",")) {
+            if (!pattern.trim().isEmpty())
+                urls.add(pattern.trim());
+        }
+        return urls;
+    }
+}
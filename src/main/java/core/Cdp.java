@@ -0,0 +1,110 @@
+package core;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import org.apache.logging.log4j.LogManager;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WrapsDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.HttpCommandExecutor;
+import org.openqa.selenium.remote.RemoteWebDriver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Chrome DevTools Protocol commands for Selenium 3, which has no CDP API <br>
+ * Commands are posted to the ChromeDriver vendor endpoint {@literal /session/{id}/goog/cdp/execute} of the driver's own server,
+ * they run on the page target ChromeDriver is attached to
+ */
+public final class Cdp {
+
+    private static final org.apache.logging.log4j.Logger log = LogManager.getLogger(Cdp.class);
+
+    private static final Gson gson = new GsonBuilder().create();
+    private static final int TIMEOUT_MS = 30_000;
+
+    private Cdp() {
+    }
+
+    /**
+     * @param driver - WebDriver, possibly wrapped
+     * @return true if the driver is a local ChromeDriver that accepts CDP commands
+     */
+    public static boolean isSupported(WebDriver driver) {
+        return unwrap(driver) instanceof ChromeDriver && executor(driver) != null;
+    }
+
+    /**
+     * Run a CDP command, e.g. {@literal Network.setBlockedURLs}
+     *
+     * @param driver - ChromeDriver, possibly wrapped
+     * @param method - CDP method
+     * @param params - CDP parameters, may be empty
+     * @return result object of the command
+     * @throws WebDriverException if the command fails or the driver does not support CDP
+     */
+    public static Map<String, Object> execute(WebDriver driver, String method, Map<String, ?> params) {
+        HttpCommandExecutor executor = executor(driver);
+        if (!(unwrap(driver) instanceof ChromeDriver) || executor == null)
+            throw new WebDriverException("CDP command " + method + " needs a local ChromeDriver, not " + driver);
+        Map<String, Object> command = new HashMap<>();
+        command.put("cmd", method);
+        // Gson 2.8 can not write Collections.emptyMap() on Java 17, it tries to open its private constructor
+        command.put("params", params == null || params.isEmpty() ? new HashMap<>() : params);
+        String endpoint = executor.getAddressOfRemoteServer() + "/session/" + ((RemoteWebDriver) unwrap(driver)).getSessionId() + "/goog/cdp/execute";
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(endpoint).openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setConnectTimeout(TIMEOUT_MS);
+            connection.setReadTimeout(TIMEOUT_MS);
+            connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(gson.toJson(command).getBytes(StandardCharsets.UTF_8));
+            }
+            int status = connection.getResponseCode();
+            Map<String, Object> response;
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+                 Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                response = gson.fromJson(reader, new TypeToken<Map<String, Object>>() {
+                }.getType());
+            }
+            Object value = response == null ? null : response.get("value");
+            if (status >= 400)
+                throw new WebDriverException("CDP command " + method + " failed with HTTP " + status + ": " + value);
+            @SuppressWarnings("unchecked")
+            Map<String, Object> result = value instanceof Map ? (Map<String, Object>) value : Collections.emptyMap();
+            log.debug("CDP " + method + " done");
+            return result;
+        } catch (IOException e) {
+            throw new WebDriverException("CDP command " + method + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    private static HttpCommandExecutor executor(WebDriver driver) {
+        WebDriver unwrapped = unwrap(driver);
+        if (!(unwrapped instanceof RemoteWebDriver))
+            return null;
+        CommandExecutor executor = ((RemoteWebDriver) unwrapped).getCommandExecutor();
+        return executor instanceof HttpCommandExecutor ? (HttpCommandExecutor) executor : null;
+    }
+
+    static WebDriver unwrap(WebDriver driver) {
+        while (driver instanceof WrapsDriver)
+            driver = ((WrapsDriver) driver).getWrappedDriver();
+        return driver;
+    }
+}
@@ -0,0 +1,289 @@
+package core;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+import org.apache.logging.log4j.LogManager;
+import org.openqa.selenium.HasCapabilities;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Persistent DevTools WebSocket to the page target of a Chrome session, opened next to ChromeDriver at the session's debugger address <br>
+ * The target is the window current in WebDriver when the channel is opened, a window switched to later is not followed <br>
+ * One channel per session, shared by {@literal NetworkCapture} (events) and the cdp transport of page objects (commands, see
+ * {@literal DriverTransport}) <br>
+ * Unlike {@literal Cdp}, which posts every command to ChromeDriver over HTTP, commands go straight to Chrome over the open socket
+ * and may be sent by several threads, responses are matched by id
+ */
+public final class CdpChannel {
+
+    private static final org.apache.logging.log4j.Logger log = LogManager.getLogger(CdpChannel.class);
+
+    private static final long TIMEOUT_MS = 30_000;
+
+    private static final Gson gson = new GsonBuilder().create();
+    private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(TIMEOUT_MS)).build();
+    private static final Map<WebDriver, CdpChannel> CHANNELS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final String url;
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final Map<Integer, CompletableFuture<JsonObject>> pending = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> eventListeners = new CopyOnWriteArrayList<>();
+    private volatile WebSocket webSocket;
+
+    private CdpChannel(String url) {
+        this.url = url;
+    }
+
+    /**
+     * Channel of the session, connected on the first call
+     *
+     * @param driver - local Chrome, possibly wrapped
+     * @return open channel or null if the session has no reachable DevTools endpoint
+     */
+    public static CdpChannel open(WebDriver driver) {
+        if (!Cdp.isSupported(driver))
+            return null;
+        WebDriver chrome = Cdp.unwrap(driver);
+        synchronized (CHANNELS) {
+            CdpChannel channel = CHANNELS.get(chrome);
+            if (channel != null && channel.isOpen())
+                return channel;
+            try {
+                channel = connect(pageTarget(debuggerAddress(chrome), chrome.getWindowHandle()));
+                CHANNELS.put(chrome, channel);
+                return channel;
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not open DevTools channel to Chrome: " + e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    /**
+     * @param driver - WebDriver, possibly wrapped
+     * @return open channel of the session or null, never connects
+     */
+    public static CdpChannel of(WebDriver driver) {
+        if (driver == null)
+            return null;
+        CdpChannel channel = CHANNELS.get(Cdp.unwrap(driver));
+        return channel != null && channel.isOpen() ? channel : null;
+    }
+
+    /**
+     * Close the channel of the session, e.g. before its page target is closed, the next {@literal open} connects to the current window
+     *
+     * @param driver - WebDriver, possibly wrapped
+     */
+    public static void close(WebDriver driver) {
+        CdpChannel channel = driver == null ? null : CHANNELS.remove(Cdp.unwrap(driver));
+        if (channel == null)
+            return;
+        WebSocket socket = channel.webSocket;
+        if (socket != null)
+            socket.abort();
+        channel.closed("closed by the framework");
+    }
+
+    public boolean isOpen() {
+        return webSocket != null;
+    }
+
+    /**
+     * Run a CDP command and wait for its result
+     *
+     * @param method - CDP method, e.g. {@literal Runtime.evaluate}
+     * @param params - CDP parameters, may be empty
+     * @return result object of the command
+     * @throws WebDriverException if the command fails, times out or the channel is closed
+     */
+    public JsonObject send(String method, Map<String, ?> params) {
+        return sendAll(method, Collections.singletonList(params)).get(0);
+    }
+
+    /**
+     * Run commands of one method back to back and wait for all results, Chrome runs them in the order sent,
+     * so e.g. mouse press and release take one round-trip
+     *
+     * @param method     - CDP method, e.g. {@literal Input.dispatchMouseEvent}
+     * @param paramsList - CDP parameters of each command
+     * @return result objects in the order of the commands
+     * @throws WebDriverException if a command fails, times out or the channel is closed
+     */
+    public List<JsonObject> sendAll(String method, List<? extends Map<String, ?>> paramsList) {
+        WebSocket socket = webSocket;
+        if (socket == null)
+            throw new WebDriverException("DevTools channel " + url + " is closed");
+        List<Integer> ids = new ArrayList<>(paramsList.size());
+        try {
+            for (Map<String, ?> params : paramsList) {
+                int id = nextId.incrementAndGet();
+                Map<String, Object> command = new HashMap<>();
+                command.put("id", id);
+                command.put("method", method);
+                // same as Cdp.execute, Gson can not write Collections.emptyMap() on Java 17
+                command.put("params", params == null || params.isEmpty() ? new HashMap<>() : params);
+                pending.put(id, new CompletableFuture<>());
+                ids.add(id);
+                // a WebSocket takes one message at a time
+                synchronized (this) {
+                    socket.sendText(gson.toJson(command), true).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                }
+            }
+            List<JsonObject> results = new ArrayList<>(ids.size());
+            for (int id : ids) {
+                JsonObject message = pending.get(id).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (message.has("error"))
+                    throw new WebDriverException("CDP command " + method + " failed: " + message.get("error"));
+                JsonElement result = message.get("result");
+                results.add(result != null && result.isJsonObject() ? result.getAsJsonObject() : new JsonObject());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverException("Interrupted while waiting for CDP command " + method, e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new WebDriverException("CDP command " + method + " failed: " + e, e);
+        } finally {
+            for (int id : ids)
+                pending.remove(id);
+        }
+    }
+
+    /**
+     * @param listener - called with the raw JSON of every event, on the WebSocket thread, must not block
+     */
+    public void addEventListener(Consumer<String> listener) {
+        eventListeners.add(listener);
+    }
+
+    public void removeEventListener(Consumer<String> listener) {
+        eventListeners.remove(listener);
+    }
+
+    private static CdpChannel connect(String pageUrl) {
+        CdpChannel channel = new CdpChannel(pageUrl);
+        channel.webSocket = HTTP_CLIENT.newWebSocketBuilder()
+                .connectTimeout(Duration.ofMillis(TIMEOUT_MS))
+                .buildAsync(URI.create(pageUrl), channel.new Listener())
+                .orTimeout(TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .join();
+        log.debug("DevTools channel open to " + pageUrl);
+        return channel;
+    }
+
+    /**
+     * ChromeDriver names a window after its DevTools target id, in older versions with a {@literal CDwindow-} prefix
+     *
+     * @param window - current window handle of the session
+     * @return WebSocket URL of the page target of the window
+     */
+    private static String pageTarget(String debuggerAddress, String window) throws IOException {
+        if (debuggerAddress == null)
+            throw new IOException("Chrome reports no debugger address");
+        String targetId = window.startsWith("CDwindow-") ? window.substring("CDwindow-".length()) : window;
+        try {
+            HttpResponse<String> targets = HTTP_CLIENT.send(HttpRequest.newBuilder(URI.create("http://" + debuggerAddress + "/json"))
+                    .timeout(Duration.ofMillis(TIMEOUT_MS)).build(), HttpResponse.BodyHandlers.ofString());
+            List<Map<String, Object>> list = gson.fromJson(targets.body(), new TypeToken<List<Map<String, Object>>>() {
+            }.getType());
+            for (Map<String, Object> target : list) {
+                if ("page".equals(target.get("type")) && targetId.equalsIgnoreCase(String.valueOf(target.get("id")))
+                        && target.get("webSocketDebuggerUrl") != null)
+                    return (String) target.get("webSocketDebuggerUrl");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while listing DevTools targets", e);
+        }
+        throw new IOException("no page target of window " + window + " at " + debuggerAddress);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String debuggerAddress(WebDriver chrome) {
+        if (!(chrome instanceof HasCapabilities))
+            return null;
+        Object options = ((HasCapabilities) chrome).getCapabilities().getCapability("goog:chromeOptions");
+        return options instanceof Map ? (String) ((Map<String, Object>) options).get("debuggerAddress") : null;
+    }
+
+    private void closed(String reason) {
+        webSocket = null;
+        log.debug("DevTools channel " + url + " closed: " + reason);
+        for (CompletableFuture<JsonObject> response : pending.values())
+            response.completeExceptionally(new WebDriverException("DevTools channel closed: " + reason));
+    }
+
+    /**
+     * WebSocket callbacks run one at a time, so fragments of a message are joined without locking
+     */
+    private final class Listener implements WebSocket.Listener {
+        private final StringBuilder message = new StringBuilder();
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            message.append(data);
+            if (last) {
+                String text = message.toString();
+                message.setLength(0);
+                dispatch(text);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            closed(statusCode + " " + reason);
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            closed(String.valueOf(error.getMessage()));
+        }
+
+        /**
+         * Chrome starts responses with their id and events with their method, events are passed on without parsing
+         */
+        private void dispatch(String text) {
+            if (!text.startsWith("{\"id\":")) {
+                for (Consumer<String> listener : eventListeners)
+                    listener.accept(text);
+                return;
+            }
+            JsonObject response = JsonParser.parseString(text).getAsJsonObject();
+            CompletableFuture<JsonObject> future = pending.get(response.get("id").getAsInt());
+            if (future != null)
+                future.complete(response);
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package core;
+
+import org.apache.logging.log4j.LogManager;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool of started WebDriver sessions shared by all TestManagers <br>
+ * Sessions are grouped by a key describing how the browser was started, e.g. browser name, and are handed out warm <br>
+ * Between leases cookies and storage of every origin the session visited are cleared over DevTools and its tabs are replaced
+ * by one blank tab, a session without DevTools is quit instead <br>
+ * A session is quit after {@literal pool.maxUses} leases or when it fails, {@literal drain()} quits everything at suite end <br>
+ * A test keeps its sessions until it finishes, so the pool grows to the thread count of parallel tests, see {@literal reserve()} <br>
+ * System properties: {@literal pool.size} (max live sessions, 0 disables pooling, default number of CPUs or the thread count if larger),
+ * {@literal pool.maxUses}, {@literal pool.leaseTimeout} (seconds)
+ */
+public final class DriverPool {
+
+    private static final org.apache.logging.log4j.Logger log = LogManager.getLogger(DriverPool.class);
+
+    private static final Integer CONFIGURED_SIZE = Integer.getInteger("pool.size");
+    private static final int MAX_USES = Integer.getInteger("pool.maxUses", 25);
+    private static final long LEASE_TIMEOUT_MS = Long.getLong("pool.leaseTimeout", 300L) * 1000;
+
+    private static final Object LOCK = new Object();
+    private static final Map<String, Deque<Session>> IDLE = new HashMap<>();
+    private static final Map<WebDriver, Session> LEASED = new IdentityHashMap<>();
+    private static int liveSessions;
+    private static volatile int size = CONFIGURED_SIZE != null ? CONFIGURED_SIZE : Runtime.getRuntime().availableProcessors();
+
+    private DriverPool() {
+    }
+
+    private static final class Session {
+        private final String key;
+        private final WebDriver driver;
+        private int uses;
+
+        private Session(String key, WebDriver driver) {
+            this.key = key;
+            this.driver = driver;
+        }
+    }
+
+    public static boolean isEnabled() {
+        return size > 0;
+    }
+
+    /**
+     * Make room for the sessions a test holds at the same time, every worker thread of a parallel test keeps its own session
+     * until the test finishes <br>
+     * Without {@literal pool.size} the pool grows to the count, an explicit smaller {@literal pool.size} fails at once instead of
+     * letting the extra workers wait {@literal pool.leaseTimeout} for a session that is only given back when the test ends
+     *
+     * @param sessions - sessions held at the same time, e.g. thread-count of a test running parallel="methods"
+     * @param owner    - name of the test for the error message
+     */
+    public static void reserve(int sessions, String owner) {
+        if (!isEnabled())
+            return;
+        synchronized (LOCK) {
+            if (sessions <= size)
+                return;
+            if (CONFIGURED_SIZE != null)
+                throw new WebDriverException("DriverPool: test '" + owner + "' runs " + sessions + " threads in parallel and each of them keeps its browser "
+                        + "until the test finishes, but pool.size is " + size + ". Set -Dpool.size to at least " + sessions + " or lower thread-count");
+            log.debug("DriverPool grows from " + size + " to " + sessions + " sessions for test '" + owner + "'");
+            size = sessions;
+            LOCK.notifyAll();
+        }
+    }
+
+    /**
+     * Lease a started session for the key, launching a new browser only when no idle one is available
+     *
+     * @param key     - describes browser and options the factory starts the browser with
+     * @param factory - starts a new browser for the key
+     * @return leased WebDriver, give it back with {@literal release()}
+     */
+    public static WebDriver lease(String key, Supplier<WebDriver> factory) {
+        if (!isEnabled())
+            return factory.get();
+
+        long deadline = System.currentTimeMillis() + LEASE_TIMEOUT_MS;
+        while (true) {
+            Session session = null;
+            Session evicted = null;
+            synchronized (LOCK) {
+                while (session == null) {
+                    Deque<Session> idle = IDLE.get(key);
+                    if (idle != null && !idle.isEmpty()) {
+                        session = idle.pollFirst();
+                    } else if (liveSessions < size) {
+                        liveSessions++;
+                        break;
+                    } else if ((evicted = pollIdleOfOtherKey(key)) != null) {
+                        break;
+                    } else {
+                        long waitMs = deadline - System.currentTimeMillis();
+                        if (waitMs <= 0)
+                            throw new WebDriverException("DriverPool: no browser session available for '" + key + "' within " + LEASE_TIMEOUT_MS + " ms");
+                        try {
+                            LOCK.wait(waitMs);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new WebDriverException("DriverPool: interrupted while waiting for a browser session", e);
+                        }
+                    }
+                }
+                if (session != null)
+                    LEASED.put(session.driver, session);
+            }
+
+            if (session != null) {
+                if (isAlive(session.driver)) {
+                    log.debug("Reusing pooled '" + key + "' session, use " + (session.uses + 1));
+                    return session.driver;
+                }
+                synchronized (LOCK) {
+                    LEASED.remove(session.driver);
+                }
+                discard(session);
+                continue;
+            }
+
+            // slot is reserved for this thread, start the browser outside of the lock
+            if (evicted != null)
+                quietQuit(evicted.driver);
+            try {
+                WebDriver driver = factory.get();
+                synchronized (LOCK) {
+                    LEASED.put(driver, new Session(key, driver));
+                }
+                log.debug("Started new pooled '" + key + "' session");
+                return driver;
+            } catch (RuntimeException e) {
+                freeSlot();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Give a leased session back to the pool, the session is reset or recycled
+     *
+     * @param driver - driver returned by {@literal lease()}
+     * @return false if the driver does not belong to the pool and has to be quit by the caller
+     */
+    public static boolean release(WebDriver driver) {
+        Session session;
+        synchronized (LOCK) {
+            session = LEASED.remove(driver);
+        }
+        if (session == null)
+            return false;
+
+        session.uses++;
+        if (session.uses >= MAX_USES) {
+            log.debug("Recycling '" + session.key + "' session after " + session.uses + " uses");
+            discard(session);
+            return true;
+        }
+        try {
+            if (!reset(driver)) {
+                log.debug("Quitting '" + session.key + "' session, its cookies and storage can not be cleared without DevTools");
+                discard(session);
+                return true;
+            }
+        } catch (WebDriverException e) {
+            log.warn("Dropping broken '" + session.key + "' session: " + e.getMessage());
+            discard(session);
+            return true;
+        }
+        synchronized (LOCK) {
+            IDLE.computeIfAbsent(session.key, k -> new ArrayDeque<>()).addFirst(session);
+            LOCK.notifyAll();
+        }
+        return true;
+    }
+
+    /**
+     * Quit every pooled session, leased or idle
+     */
+    public static void drain() {
+        List<Session> sessions = new ArrayList<>();
+        synchronized (LOCK) {
+            for (Deque<Session> idle : IDLE.values())
+                sessions.addAll(idle);
+            sessions.addAll(LEASED.values());
+            IDLE.clear();
+            LEASED.clear();
+            liveSessions -= sessions.size();
+            LOCK.notifyAll();
+        }
+        for (Session session : sessions)
+            quietQuit(session.driver);
+        if (!sessions.isEmpty())
+            log.debug("DriverPool drained " + sessions.size() + " session(s)");
+    }
+
+    private static Session pollIdleOfOtherKey(String key) {
+        for (Iterator<Map.Entry<String, Deque<Session>>> it = IDLE.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Deque<Session>> entry = it.next();
+            if (!entry.getKey().equals(key) && !entry.getValue().isEmpty())
+                return entry.getValue().pollLast();
+        }
+        return null;
+    }
+
+    /**
+     * Clear what the lease left behind in every origin it visited, origins are read from the navigation history and frames of
+     * all tabs, the tabs are then replaced by one new tab, so session storage and history go as well
+     *
+     * @return false if the session can not be cleared and must not be reused
+     */
+    private static boolean reset(WebDriver driver) {
+        if (!Cdp.isSupported(driver)) {
+            // without DevTools the origins visited before the current page are unknown, their cookies and storage would carry over
+            return false;
+        }
+        List<String> handles = new ArrayList<>(driver.getWindowHandles());
+        Set<String> origins = new TreeSet<>();
+        for (String handle : handles) {
+            driver.switchTo().window(handle);
+            origins.addAll(visitedOrigins(driver));
+        }
+        // the DevTools channel and network capture of the old tab reconnect to the new one at the next lease
+        CdpChannel.close(driver);
+        Cdp.execute(driver, "Target.createTarget", Collections.singletonMap("url", "about:blank"));
+        for (String handle : handles) {
+            driver.switchTo().window(handle);
+            driver.close();
+        }
+        Set<String> fresh = driver.getWindowHandles();
+        if (fresh.size() != 1)
+            throw new WebDriverException("Expected the new tab only, found " + fresh.size() + " windows");
+        driver.switchTo().window(fresh.iterator().next());
+        Cdp.execute(driver, "Network.clearBrowserCookies", Collections.emptyMap());
+        for (String origin : origins) {
+            Map<String, Object> params = new HashMap<>();
+            params.put("origin", origin);
+            params.put("storageTypes", "all");
+            Cdp.execute(driver, "Storage.clearDataForOrigin", params);
+        }
+        log.debug("Cleared cookies and storage of " + origins.size() + " origin(s): " + origins);
+        return true;
+    }
+
+    /**
+     * @return http(s) origins of the navigation history and the current frames of the tab the driver is switched to
+     */
+    @SuppressWarnings("unchecked")
+    private static Set<String> visitedOrigins(WebDriver driver) {
+        Set<String> origins = new TreeSet<>();
+        Object entries = Cdp.execute(driver, "Page.getNavigationHistory", Collections.emptyMap()).get("entries");
+        if (entries instanceof List) {
+            for (Object entry : (List<Object>) entries)
+                addOrigin(origins, (String) ((Map<String, Object>) entry).get("url"));
+        }
+        addFrameOrigins(origins, Cdp.execute(driver, "Page.getFrameTree", Collections.emptyMap()).get("frameTree"));
+        return origins;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void addFrameOrigins(Set<String> origins, Object frameTree) {
+        if (!(frameTree instanceof Map))
+            return;
+        Map<String, Object> tree = (Map<String, Object>) frameTree;
+        if (tree.get("frame") instanceof Map)
+            addOrigin(origins, (String) ((Map<String, Object>) tree.get("frame")).get("url"));
+        if (tree.get("childFrames") instanceof List) {
+            for (Object child : (List<Object>) tree.get("childFrames"))
+                addFrameOrigins(origins, child);
+        }
+    }
+
+    private static void addOrigin(Set<String> origins, String url) {
+        if (url == null)
+            return;
+        try {
+            URI uri = new URI(url);
+            if (uri.getHost() != null && ("http".equals(uri.getScheme()) || "https".equals(uri.getScheme())))
+                origins.add(uri.getScheme() + "://" + uri.getHost() + (uri.getPort() < 0 ? "" : ":" + uri.getPort()));
+        } catch (URISyntaxException e) {
+            log.debug("Not an origin: " + url);
+        }
+    }
+
+    private static boolean isAlive(WebDriver driver) {
+        try {
+            driver.getWindowHandles();
+            return true;
+        } catch (WebDriverException e) {
+            return false;
+        }
+    }
+
+    private static void discard(Session session) {
+        quietQuit(session.driver);
+        freeSlot();
+    }
+
+    private static void freeSlot() {
+        synchronized (LOCK) {
+            liveSessions--;
+            LOCK.notifyAll();
+        }
+    }
+
+    private static void quietQuit(WebDriver driver) {
+        try {
+            driver.quit();
+        } catch (WebDriverException e) {
+            log.warn("Could not quit webdriver: " + e.getMessage());
+        }
+    }
+}
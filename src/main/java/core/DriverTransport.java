@@ -0,0 +1,41 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * How page objects talk to the browser, chosen by the suite parameter {@literal transport} or -Ddriver.transport <br>
+ * webdriver - every element action is an HTTP call to ChromeDriver, which runs it in Chrome <br>
+ * cdp - element actions of {@literal BasePage} run over the persistent {@literal CdpChannel} of the session: one Runtime.evaluate
+ * finds the element, checks that it is visible and scrolls or clears it, a click or typed text adds one more round-trip for the input
+ * events. The webdriver transport needs one HTTP call with a cached handle, ChromeDriver then runs its own DevTools commands,
+ * so compare both with {@literal target/step-timings.txt} before choosing; navigation and everything Selenide does directly
+ * stay on WebDriver. Falls back to webdriver for browsers without a DevTools endpoint
+ */
+public enum DriverTransport {
+    WEBDRIVER("webdriver"),
+    CDP("cdp");
+
+    private final String text;
+
+    DriverTransport(String text) {
+        this.text = text;
+    }
+
+    public String get() {
+        return this.text;
+    }
+
+    @Override
+    public String toString() {
+        return this.text;
+    }
+
+    public static DriverTransport findByString(String str) {
+        for (DriverTransport v : values()) {
+            if (v.get().equals(str)) {
+                return v;
+            }
+        }
+        throw new IllegalArgumentException("Unknown driver transport '" + str + "', use one of " + Arrays.toString(values()));
+    }
+}
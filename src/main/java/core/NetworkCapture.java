@@ -0,0 +1,332 @@
+package core;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import org.apache.logging.log4j.LogManager;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Network traffic of a Chrome session, received as DevTools events on the {@literal CdpChannel} of the session <br>
+ * The last {@literal har.buffer} events (default 2000, 0 disables the capture) are kept in a fixed ring per session, older ones are
+ * overwritten, events are stored as received and only parsed when a HAR is requested <br>
+ * {@literal ClassListener} drops the ring when a test starts or passes and attaches it as HAR when a test fails <br>
+ * Response bodies are not captured
+ */
+public final class NetworkCapture {
+
+    private static final org.apache.logging.log4j.Logger log = LogManager.getLogger(NetworkCapture.class);
+
+    private static final int BUFFER_SIZE = Integer.getInteger("har.buffer", 2000);
+    private static final List<String> CAPTURED_EVENTS = List.of("Network.requestWillBeSent", "Network.responseReceived",
+            "Network.loadingFinished", "Network.loadingFailed");
+
+    private static final Map<WebDriver, NetworkCapture> CAPTURES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final CdpChannel channel;
+    private final Consumer<String> listener = this::onEvent;
+    private final String[] events = new String[BUFFER_SIZE];
+    private long written;
+    private long dropped;
+
+    private NetworkCapture(CdpChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Start capturing a new or reused session, a session captured already keeps its channel and only drops its events
+     *
+     * @param driver - leased Chrome, possibly wrapped
+     */
+    public static void attach(WebDriver driver) {
+        if (BUFFER_SIZE <= 0 || !Cdp.isSupported(driver))
+            return;
+        WebDriver chrome = Cdp.unwrap(driver);
+        NetworkCapture capture = CAPTURES.get(chrome);
+        if (capture != null && capture.channel.isOpen()) {
+            capture.clear();
+            return;
+        }
+        CdpChannel channel = CdpChannel.open(chrome);
+        if (channel == null) {
+            log.warn("No DevTools channel, network traffic is not captured");
+            return;
+        }
+        capture = new NetworkCapture(channel);
+        channel.addEventListener(capture.listener);
+        try {
+            channel.send("Network.enable", Collections.emptyMap());
+            CAPTURES.put(chrome, capture);
+        } catch (WebDriverException e) {
+            channel.removeEventListener(capture.listener);
+            log.warn("Could not capture network traffic: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param driver - WebDriver, possibly wrapped
+     * @return capture of the session or null if its traffic is not captured
+     */
+    public static NetworkCapture of(WebDriver driver) {
+        return driver == null ? null : CAPTURES.get(Cdp.unwrap(driver));
+    }
+
+    /**
+     * Forget captured events, e.g. of a passed test
+     */
+    public synchronized void clear() {
+        Arrays.fill(events, null);
+        written = 0;
+        dropped = 0;
+    }
+
+    public synchronized boolean isEmpty() {
+        return written == 0;
+    }
+
+    /**
+     * Requests of the captured events as HTTP Archive 1.2, events are parsed only now and the archive is written as a stream
+     *
+     * @param pageTitle - title of the single page of the archive, e.g. the failed test
+     * @return UTF-8 HAR
+     */
+    public byte[] toHar(String pageTitle) {
+        String[] captured;
+        long lost;
+        synchronized (this) {
+            int count = (int) Math.min(written, events.length);
+            captured = new String[count];
+            for (int i = 0; i < count; i++)
+                captured[i] = events[(int) ((written - count + i) % events.length)];
+            lost = dropped;
+        }
+
+        Map<String, Exchange> exchanges = new LinkedHashMap<>();
+        List<Exchange> completed = new ArrayList<>();
+        for (String event : captured) {
+            JsonObject message = JsonParser.parseString(event).getAsJsonObject();
+            JsonObject params = message.getAsJsonObject("params");
+            String requestId = params.get("requestId").getAsString();
+            switch (message.get("method").getAsString()) {
+                case "Network.requestWillBeSent":
+                    Exchange redirected = exchanges.remove(requestId);
+                    if (redirected != null && params.has("redirectResponse")) {
+                        // a redirect reuses the request id, the previous hop ends with the redirect response
+                        redirected.response = params.getAsJsonObject("redirectResponse");
+                        redirected.responseTime = params.get("timestamp").getAsDouble();
+                        redirected.finishTime = redirected.responseTime;
+                    }
+                    Exchange exchange = new Exchange(params);
+                    exchanges.put(requestId, exchange);
+                    completed.add(exchange);
+                    break;
+                case "Network.responseReceived":
+                    Exchange received = exchanges.get(requestId);
+                    if (received != null) {
+                        received.response = params.getAsJsonObject("response");
+                        received.responseTime = params.get("timestamp").getAsDouble();
+                    }
+                    break;
+                case "Network.loadingFinished":
+                    Exchange finished = exchanges.get(requestId);
+                    if (finished != null) {
+                        finished.finishTime = params.get("timestamp").getAsDouble();
+                        finished.encodedLength = params.get("encodedDataLength").getAsLong();
+                    }
+                    break;
+                default:
+                    Exchange failed = exchanges.get(requestId);
+                    if (failed != null) {
+                        failed.finishTime = params.get("timestamp").getAsDouble();
+                        failed.error = params.get("errorText").getAsString();
+                    }
+            }
+        }
+
+        ByteArrayOutputStream har = new ByteArrayOutputStream();
+        try (JsonWriter out = new JsonWriter(new OutputStreamWriter(har, StandardCharsets.UTF_8))) {
+            out.setIndent(" ");
+            out.beginObject().name("log").beginObject();
+            out.name("version").value("1.2");
+            out.name("creator").beginObject().name("name").value("test-automation").name("version").value("1.0").endObject();
+            if (lost > 0)
+                out.name("comment").value(lost + " older event(s) did not fit into har.buffer=" + BUFFER_SIZE);
+            out.name("pages").beginArray();
+            if (!completed.isEmpty()) {
+                out.beginObject();
+                out.name("startedDateTime").value(completed.get(0).startedDateTime());
+                out.name("id").value("page_1");
+                out.name("title").value(pageTitle);
+                out.name("pageTimings").beginObject().endObject();
+                out.endObject();
+            }
+            out.endArray();
+            out.name("entries").beginArray();
+            for (Exchange exchange : completed)
+                exchange.write(out);
+            out.endArray();
+            out.endObject().endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return har.toByteArray();
+    }
+
+    private void onEvent(String event) {
+        if (CAPTURED_EVENTS.contains(method(event)))
+            add(event);
+    }
+
+    private synchronized void add(String event) {
+        if (written >= events.length)
+            dropped++;
+        events[(int) (written % events.length)] = event;
+        written++;
+    }
+
+    /**
+     * @return method of a DevTools event without parsing the whole message
+     */
+    private static String method(String message) {
+        int start = message.indexOf("\"method\":\"");
+        if (start < 0)
+            return null;
+        start += 10;
+        int end = message.indexOf('"', start);
+        return end < 0 ? null : message.substring(start, end);
+    }
+
+    /**
+     * One request and its response, times are DevTools monotonic seconds
+     */
+    private static final class Exchange {
+        private final JsonObject request;
+        private final double wallTime;
+        private final double startTime;
+        private JsonObject response;
+        private double responseTime = -1;
+        private double finishTime = -1;
+        private long encodedLength = -1;
+        private String error;
+
+        private Exchange(JsonObject params) {
+            request = params.getAsJsonObject("request");
+            wallTime = params.get("wallTime").getAsDouble();
+            startTime = params.get("timestamp").getAsDouble();
+        }
+
+        private String startedDateTime() {
+            return Instant.ofEpochMilli(Math.round(wallTime * 1000)).toString();
+        }
+
+        private void write(JsonWriter out) throws IOException {
+            // HAR requires send, wait and receive to be 0 or more and time to be their sum, a request without response waited 0
+            double send = 0;
+            double wait = responseTime < 0 ? 0 : millis(responseTime - startTime);
+            double receive = responseTime < 0 || finishTime < responseTime ? 0 : millis(finishTime - responseTime);
+            String failure = error;
+            if (response == null) {
+                String reason = error != null ? error : "no response";
+                failure = finishTime >= 0 ? reason + " after " + millis(finishTime - startTime) + " ms" : reason;
+            }
+            String url = request.get("url").getAsString();
+
+            out.beginObject();
+            out.name("pageref").value("page_1");
+            out.name("startedDateTime").value(startedDateTime());
+            out.name("time").value(send + wait + receive);
+
+            out.name("request").beginObject();
+            out.name("method").value(request.get("method").getAsString());
+            out.name("url").value(url);
+            out.name("httpVersion").value(response != null && response.has("protocol") ? response.get("protocol").getAsString() : "");
+            out.name("cookies").beginArray().endArray();
+            writeHeaders(out, request.getAsJsonObject("headers"));
+            writeQueryString(out, url);
+            if (request.has("postData")) {
+                JsonElement contentType = request.getAsJsonObject("headers").get("Content-Type");
+                out.name("postData").beginObject();
+                out.name("mimeType").value(contentType == null ? "" : contentType.getAsString());
+                out.name("text").value(request.get("postData").getAsString());
+                out.endObject();
+            }
+            out.name("headersSize").value(-1);
+            out.name("bodySize").value(request.has("postData") ? request.get("postData").getAsString().length() : 0);
+            out.endObject();
+
+            out.name("response").beginObject();
+            out.name("status").value(response == null ? 0 : response.get("status").getAsInt());
+            out.name("statusText").value(response == null ? "" : response.get("statusText").getAsString());
+            out.name("httpVersion").value(response != null && response.has("protocol") ? response.get("protocol").getAsString() : "");
+            out.name("cookies").beginArray().endArray();
+            writeHeaders(out, response == null ? null : response.getAsJsonObject("headers"));
+            out.name("content").beginObject();
+            out.name("size").value(encodedLength);
+            out.name("mimeType").value(response == null ? "" : response.get("mimeType").getAsString());
+            out.endObject();
+            JsonElement location = response == null ? null : response.getAsJsonObject("headers").get("Location");
+            out.name("redirectURL").value(location == null ? "" : location.getAsString());
+            out.name("headersSize").value(-1);
+            out.name("bodySize").value(encodedLength);
+            if (failure != null)
+                out.name("_error").value(failure);
+            out.endObject();
+
+            out.name("cache").beginObject().endObject();
+            out.name("timings").beginObject();
+            out.name("send").value(send);
+            out.name("wait").value(wait);
+            out.name("receive").value(receive);
+            out.endObject();
+            out.endObject();
+        }
+
+        private static double millis(double seconds) {
+            return Math.round(seconds * 1_000_000) / 1000.0;
+        }
+
+        private static void writeHeaders(JsonWriter out, JsonObject headers) throws IOException {
+            out.name("headers").beginArray();
+            if (headers != null) {
+                for (Map.Entry<String, JsonElement> header : headers.entrySet())
+                    out.beginObject().name("name").value(header.getKey()).name("value").value(header.getValue().getAsString()).endObject();
+            }
+            out.endArray();
+        }
+
+        private static void writeQueryString(JsonWriter out, String url) throws IOException {
+            out.name("queryString").beginArray();
+            int query = url.indexOf('?');
+            if (query >= 0) {
+                int fragment = url.indexOf('#', query);
+                for (String pair : url.substring(query + 1, fragment < 0 ? url.length() : fragment).split("&")) {
+                    if (pair.isEmpty())
+                        continue;
+                    int equals = pair.indexOf('=');
+                    out.beginObject()
+                            .name("name").value(equals < 0 ? pair : pair.substring(0, equals))
+                            .name("value").value(equals < 0 ? "" : pair.substring(equals + 1))
+                            .endObject();
+                }
+            }
+            out.endArray();
+        }
+    }
+}
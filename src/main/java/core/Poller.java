@@ -0,0 +1,113 @@
+package core;
+
+import com.codeborne.selenide.Condition;
+import com.codeborne.selenide.SelenideElement;
+import org.apache.logging.log4j.LogManager;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Polls REST assertions and element conditions until they pass or the deadline is reached, replaces fixed sleeps <br>
+ * Pause between attempts starts at {@literal wait.initialDelay} ms and doubles up to {@literal wait.maxDelay} ms,
+ * jitter keeps parallel threads from polling in lockstep <br>
+ * Default deadline is {@literal wait.timeout} ms, actual time of every wait is logged
+ */
+public final class Poller {
+
+    private static final org.apache.logging.log4j.Logger log = LogManager.getLogger(Poller.class);
+
+    public static final long TIMEOUT_MS = Long.getLong("wait.timeout", 4000L);
+    private static final long INITIAL_DELAY_MS = Long.getLong("wait.initialDelay", 50L);
+    private static final long MAX_DELAY_MS = Long.getLong("wait.maxDelay", 1000L);
+
+    private Poller() {
+    }
+
+    /**
+     * Run assertion until it stops throwing, with default deadline
+     *
+     * @param description - what is awaited, for logs
+     * @param assertion   - throws AssertionError or RuntimeException while the condition is not met
+     * @return milliseconds the wait took
+     */
+    public static long until(String description, Runnable assertion) {
+        return until(description, Duration.ofMillis(TIMEOUT_MS), assertion);
+    }
+
+    /**
+     * Run assertion until it stops throwing or the timeout expires, the last failure is rethrown on timeout
+     *
+     * @param description - what is awaited, for logs
+     * @param timeout     - deadline for this call
+     * @param assertion   - throws AssertionError or RuntimeException while the condition is not met
+     * @return milliseconds the wait took
+     */
+    public static long until(String description, Duration timeout, Runnable assertion) {
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        long delay = INITIAL_DELAY_MS;
+        int attempts = 0;
+        while (true) {
+            attempts++;
+            try {
+                assertion.run();
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                log.debug("Waited " + elapsed + " ms (" + attempts + " attempts) for " + description);
+                return elapsed;
+            } catch (AssertionError | RuntimeException e) {
+                long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMs <= 0) {
+                    log.warn("Gave up after " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms (" + attempts + " attempts) waiting for " + description);
+                    throw e;
+                }
+                sleep(Math.min(withJitter(delay), remainingMs));
+                delay = Math.min(delay * 2, MAX_DELAY_MS);
+            }
+        }
+    }
+
+    /**
+     * Poll condition until it is true, with default deadline
+     *
+     * @param description - what is awaited, for logs and the failure message
+     * @param condition   - polled condition
+     * @return milliseconds the wait took
+     */
+    public static long untilTrue(String description, BooleanSupplier condition) {
+        return untilTrue(description, Duration.ofMillis(TIMEOUT_MS), condition);
+    }
+
+    public static long untilTrue(String description, Duration timeout, BooleanSupplier condition) {
+        return until(description, timeout, () -> {
+            if (!condition.getAsBoolean())
+                throw new AssertionError("Condition not met in " + timeout.toMillis() + " ms: " + description);
+        });
+    }
+
+    /**
+     * Poll element until it matches the condition, with default deadline
+     *
+     * @param element   - Selenide element
+     * @param condition - Selenide condition, e.g. Condition.visible
+     * @return milliseconds the wait took
+     */
+    public static long until(SelenideElement element, Condition condition) {
+        return untilTrue(element + " should be " + condition, () -> element.is(condition));
+    }
+
+    private static long withJitter(long delay) {
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while polling", e);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package core;
+
+import core.metrics.RestTimingFilter;
+import io.restassured.RestAssured;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.config.HttpClientConfig;
+import io.restassured.config.LogConfig;
+import io.restassured.config.RestAssuredConfig;
+import io.restassured.specification.RequestSpecification;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.client.HttpClient;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.entity.BufferedHttpEntity;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.logging.log4j.LogManager;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * REST client layer shared by page objects, replaces the global {@literal RestAssured.baseURI} <br>
+ * All requests go through one pooled HTTP connection manager, so connections are kept alive and reused between calls and threads <br>
+ * Every request gets its own light HttpClient on top of the pool, RestAssured writes request settings into the params of the client,
+ * so a shared client would race between threads <br>
+ * Each thread gets its own RequestSpecification per base URI, built once and never modified <br>
+ * System properties: {@literal rest.pool.maxTotal}, {@literal rest.pool.maxPerRoute},
+ * {@literal rest.pool.maxPerRoute.{host}} (limit for one host), {@literal rest.keepAlive} (ms idle connections are kept when the server sends no Keep-Alive header),
+ * {@literal rest.bufferLimit} (bytes, bodies of known length up to it are read as they arrive, larger and chunked bodies are streamed to the test)
+ */
+public final class RestClient {
+
+    private static final org.apache.logging.log4j.Logger log = LogManager.getLogger(RestClient.class);
+
+    private static final int MAX_TOTAL = Integer.getInteger("rest.pool.maxTotal", 200);
+    private static final int MAX_PER_ROUTE = Integer.getInteger("rest.pool.maxPerRoute", 50);
+    private static final long KEEP_ALIVE_MS = Long.getLong("rest.keepAlive", 30000L);
+    private static final long BUFFER_LIMIT = Long.getLong("rest.bufferLimit", 64 * 1024L);
+
+    @SuppressWarnings("deprecation")
+    private static final ClientConnectionManager CONNECTION_MANAGER = createConnectionManager();
+    private static final ConnectionKeepAliveStrategy KEEP_ALIVE_STRATEGY = (response, context) -> {
+        long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+        return keepAlive > 0 ? keepAlive : KEEP_ALIVE_MS;
+    };
+    private static final RestAssuredConfig CONFIG = RestAssuredConfig.config()
+            .httpClient(HttpClientConfig.httpClientConfig()
+                    .httpClientFactory(() -> createHttpClient(false)));
+    private static final RestAssuredConfig MUTED_CONFIG = RestAssuredConfig.config()
+            .httpClient(HttpClientConfig.httpClientConfig()
+                    .httpClientFactory(() -> createHttpClient(true)))
+            .logConfig(LogConfig.logConfig().defaultStream(new PrintStream(new OutputStream() {
+                @Override
+                public void write(int b) {
+                }
+            })));
+
+    private static final RestTimingFilter TIMING_FILTER = new RestTimingFilter();
+    private static final ThreadLocal<Map<String, RequestSpecification>> SPECIFICATIONS = ThreadLocal.withInitial(HashMap::new);
+    private static final ThreadLocal<Boolean> MUTED = ThreadLocal.withInitial(() -> false);
+
+    private RestClient() {
+    }
+
+    /**
+     * Start a request against the base URI, same as RestAssured.given() with pooled connections
+     *
+     * @param baseUri - API root, e.g. https://petstore.swagger.io/v2
+     * @return new request specification
+     */
+    public static RequestSpecification given(String baseUri) {
+        return RestAssured.given().spec(specification(baseUri));
+    }
+
+    /**
+     * Immutable specification of the current thread for the base URI
+     *
+     * @param baseUri - API root
+     * @return request specification to be passed to {@literal spec()}
+     */
+    public static RequestSpecification specification(String baseUri) {
+        return SPECIFICATIONS.get().computeIfAbsent(baseUri, RestClient::buildSpecification);
+    }
+
+    /**
+     * Discard request and response logging ({@literal log().all()} etc.) of requests sent by the current thread,
+     * for load generator workers running the same steps thousands of times <br>
+     * Response bodies of these requests are also read in full as they arrive, see {@literal createHttpClient()}
+     */
+    public static void muteLogging() {
+        MUTED.set(true);
+        SPECIFICATIONS.get().clear();
+    }
+
+    private static RequestSpecification buildSpecification(String baseUri) {
+        applyRouteLimit(baseUri);
+        return new RequestSpecBuilder()
+                .setBaseUri(baseUri)
+                .setConfig(MUTED.get() ? MUTED_CONFIG : CONFIG)
+                .addFilter(TIMING_FILTER)
+                .build();
+    }
+
+    private static void applyRouteLimit(String baseUri) {
+        URI uri = URI.create(baseUri);
+        Integer limit = Integer.getInteger("rest.pool.maxPerRoute." + uri.getHost());
+        if (limit == null)
+            return;
+        boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+        int port = uri.getPort() != -1 ? uri.getPort() : secure ? 443 : 80;
+        setMaxPerRoute(new HttpRoute(new HttpHost(uri.getHost(), port, uri.getScheme()), null, secure), limit);
+        log.debug("Connection limit for " + uri.getHost() + " is " + limit);
+    }
+
+    // RestAssured 4 only drives the AbstractHttpClient API (it calls getParams(), which HttpClientBuilder clients do not support),
+    // so the pool and the clients have to be the deprecated HttpClient 4.0 classes, kept to CONNECTION_MANAGER and the methods below
+
+    @SuppressWarnings("deprecation")
+    private static ClientConnectionManager createConnectionManager() {
+        org.apache.http.impl.conn.PoolingClientConnectionManager manager = new org.apache.http.impl.conn.PoolingClientConnectionManager();
+        manager.setMaxTotal(MAX_TOTAL);
+        manager.setDefaultMaxPerRoute(MAX_PER_ROUTE);
+        return manager;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static void setMaxPerRoute(HttpRoute route, int limit) {
+        ((org.apache.http.impl.conn.PoolingClientConnectionManager) CONNECTION_MANAGER).setMaxPerRoute(route, limit);
+    }
+
+    /**
+     * New client of one request, cheap to create, connections come from and go back to the shared pool
+     *
+     * @param loadWorker - read every response body in full before RestAssured sees it, not only short ones
+     */
+    @SuppressWarnings("deprecation")
+    private static HttpClient createHttpClient(boolean loadWorker) {
+        org.apache.http.impl.client.DefaultHttpClient client = new org.apache.http.impl.client.DefaultHttpClient(CONNECTION_MANAGER);
+        client.setKeepAliveStrategy(KEEP_ALIVE_STRATEGY);
+        // RestAssured leaves bodies unread when only the status code is checked, e.g. then().statusCode(200), and the pooled
+        // connection stays leased for good, read bodies free the connection right away
+        // tests get short bodies buffered and large or chunked ones streamed, see JsonExpectations, load workers get all bodies buffered
+        client.addResponseInterceptor((response, context) -> {
+            HttpEntity entity = response.getEntity();
+            if (entity != null && (loadWorker || entity.getContentLength() >= 0 && entity.getContentLength() <= BUFFER_LIMIT))
+                response.setEntity(new BufferedHttpEntity(entity));
+        });
+        return client;
+    }
+}
@@ -2,6 +2,7 @@ package core;
 
 import com.codeborne.selenide.Configuration;
 import com.codeborne.selenide.WebDriverRunner;
+import core.server.PetStoreServer;
 import org.apache.logging.log4j.LogManager;
 import org.openqa.selenium.InvalidArgumentException;
 import org.openqa.selenium.WebDriver;
@@ -9,14 +10,19 @@ import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.chrome.ChromeDriverService;
 import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.firefox.FirefoxDriver;
+import org.openqa.selenium.WebDriverException;
 import org.testng.ITestContext;
+import org.testng.ITestResult;
 import org.testng.Reporter;
+import org.testng.xml.XmlTest;
 
 import java.io.File;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -30,7 +36,9 @@ import static core.Browser.*;
  * To use Selenium in tests and launch a browser need to call manager.configure() from inside a method <br>
  * TestManager initializes test parameters from Suite XML, or sets default if any of the parameters is not available <br>
  * Takes care of Selenide configuration <br>
- * Manages URLs based on provided project and language parameters
+ * Manages URLs based on provided project and language parameters <br>
+ * Every thread owns its own TestManager and WebDriver, so suites may run with parallel="methods" <br>
+ * A thread without a manager gets a copy of the one created for its test context on first lookup
  */
 public class TestManager {
 
@@ -38,13 +46,19 @@ public class TestManager {
 
     public static final String RESOURCES_PATH = System.getProperty("user.dir") + File.separator + "src" + File.separator + "main" + File.separator + "resources";
     private static final String WEBDRIVERS_PATH = RESOURCES_PATH + File.separator + "webdrivers";
-    private static ITestContext testContext;
+    private static final Map<Long, TestManager> THREAD_MANAGERS = new ConcurrentHashMap<>();
+    private static final Set<TestManager> ALL_MANAGERS = ConcurrentHashMap.newKeySet();
 
+    private final ITestContext testContext;
+    private final long ownerThreadId = Thread.currentThread().getId();
+    private volatile boolean configured;
 
     private String url = "https://petstore.swagger.io";
-    private Map<String, WebDriver> webDrivers = new HashMap<>();
+    private Map<String, WebDriver> webDrivers = new ConcurrentHashMap<>();
     private String currentWebDriver;
     private Browser browser = CHROME;
+    private BrowserProfile profile = BrowserProfile.DEFAULT;
+    private DriverTransport transport = DriverTransport.WEBDRIVER;
 
 
     /**
@@ -52,8 +66,30 @@ public class TestManager {
      * Does NOT launch Selenium at this point
      */
     public TestManager() {
-        testContext = Reporter.getCurrentTestResult().getTestContext();
-        testContext.setAttribute("manager", this);
+        ITestResult testResult = Reporter.getCurrentTestResult();
+        testContext = testResult == null ? null : testResult.getTestContext();
+        if (testContext != null)
+            testContext.setAttribute("manager", this);
+        register();
+    }
+
+    /**
+     * Copies test parameters of the context manager for a worker thread, does not touch ITestContext
+     *
+     * @param template - manager created for the test context
+     */
+    private TestManager(TestManager template) {
+        testContext = template.testContext;
+        url = template.url;
+        browser = template.browser;
+        profile = template.profile;
+        transport = template.transport;
+        register();
+    }
+
+    private void register() {
+        THREAD_MANAGERS.put(ownerThreadId, this);
+        ALL_MANAGERS.add(this);
     }
 
     /**
@@ -72,31 +108,117 @@ public class TestManager {
         setupLogging();
         updateSelenideConfiguration();
         startDriver();
+        configured = true;
         return this;
     }
 
     /**
-     * Get instance of test manager from other objects and reporter with no access to testmanager variable.
+     * Get instance of test manager owned by the current thread from other objects and reporter with no access to testmanager variable.
+     * If the thread has no manager for the running test context yet, a copy of the context manager is created and configured for it.
      *
      * @return the test manager
      */
     public static TestManager getActualInstance() {
-        if (testContext == null || testContext.getAttribute("manager") == null) {
+        TestManager manager = findActualInstance();
+        if (manager == null)
             log.error("Calling getActualInstance() on empty object. TestManager is not initialized!");
-            return null;
+        return manager;
+    }
+
+    /**
+     * Same as {@literal getActualInstance()}, but stays silent when no manager was created for the test context
+     *
+     * @return the test manager or null
+     */
+    public static TestManager findActualInstance() {
+        TestManager manager = THREAD_MANAGERS.get(Thread.currentThread().getId());
+        ITestResult testResult = Reporter.getCurrentTestResult();
+        ITestContext context = testResult == null ? null : testResult.getTestContext();
+        if (manager != null && (context == null || manager.testContext == context))
+            return manager;
+        if (context == null || context.getAttribute("manager") == null)
+            return manager;
+
+        TestManager template = (TestManager) context.getAttribute("manager");
+        return template.forkForCurrentThread();
+    }
+
+    /**
+     * Binds a copy of this manager to the calling thread, for helper threads started by tests, e.g. load generator workers <br>
+     * The copy is configured if this manager is, and is closed together with the test context
+     *
+     * @return manager of the current thread
+     */
+    public TestManager forkForCurrentThread() {
+        TestManager workerManager = new TestManager(this);
+        log.debug("Creating TestManager for thread '" + Thread.currentThread().getName() + "'");
+        return configured ? workerManager.configure() : workerManager;
+    }
+
+    /**
+     * Quits webdrivers of all managers created for the test context and forgets them
+     *
+     * @param context - finished test context
+     */
+    public static void closeAll(ITestContext context) {
+        for (TestManager manager : ALL_MANAGERS) {
+            if (manager.testContext == context)
+                manager.quit();
+        }
+    }
+
+    /**
+     * Returns pooled webdrivers owned by this manager to {@literal DriverPool}, quits the others and unbinds the manager from its thread
+     */
+    public void quit() {
+        ALL_MANAGERS.remove(this);
+        THREAD_MANAGERS.remove(ownerThreadId, this);
+        if (ownerThreadId == Thread.currentThread().getId() && WebDriverRunner.hasWebDriverStarted())
+            WebDriverRunner.webdriverContainer.resetWebDriver();
+        for (WebDriver driver : webDrivers.values()) {
+            if (DriverPool.release(driver))
+                continue;
+            try {
+                driver.quit();
+            } catch (WebDriverException e) {
+                log.warn("Could not quit webdriver: " + e.getMessage());
+            }
         }
-        return (TestManager) testContext.getAttribute("manager");
+        webDrivers.clear();
     }
 
     private void readBrowserOverride() {
+        // Browser from suite XML parameter, "none" runs REST-only tests without launching a browser
+        String browserParameter = testContext == null ? null : testContext.getCurrentXmlTest().getParameter("browser");
+        if (browserParameter != null && !browserParameter.isEmpty())
+            browser = Browser.findByString(browserParameter.toLowerCase());
+
         // Browser override by env var
         String browserOverride = System.getProperty("browser");
         String testSiteAddressOverride = System.getProperty("test.url");
-        List<String> neverOverride = Arrays.asList("headless", "htmlunit", "mobile");
+        List<String> neverOverride = Arrays.asList("headless", "htmlunit", "mobile", "none");
         if (browserOverride != null && !browserOverride.isEmpty() && !neverOverride.contains(getBrowser().toString())) {
             browser = Browser.findByString(browserOverride.toLowerCase());
         }
-        if (testSiteAddressOverride != null && !testSiteAddressOverride.isEmpty()) {
+
+        // Performance profile from suite XML parameter, overridden by env var
+        String profileParameter = testContext == null ? null : testContext.getCurrentXmlTest().getParameter("profile");
+        String profileOverride = System.getProperty("browser.profile");
+        if (profileOverride != null && !profileOverride.isEmpty())
+            profile = BrowserProfile.findByString(profileOverride.toLowerCase());
+        else if (profileParameter != null && !profileParameter.isEmpty())
+            profile = BrowserProfile.findByString(profileParameter.toLowerCase());
+
+        // Driver transport from suite XML parameter, overridden by env var
+        String transportParameter = testContext == null ? null : testContext.getCurrentXmlTest().getParameter("transport");
+        String transportOverride = System.getProperty("driver.transport");
+        if (transportOverride != null && !transportOverride.isEmpty())
+            transport = DriverTransport.findByString(transportOverride.toLowerCase());
+        else if (transportParameter != null && !transportParameter.isEmpty())
+            transport = DriverTransport.findByString(transportParameter.toLowerCase());
+        if (PetStoreServer.LOCAL.equalsIgnoreCase(testSiteAddressOverride)) {
+            url = PetStoreServer.startShared().getUrl();
+        } else if (testSiteAddressOverride != null && !testSiteAddressOverride.isEmpty()) {
             url = testSiteAddressOverride;
         }
     }
@@ -131,11 +253,14 @@ public class TestManager {
         Configuration.savePageSource = false;
         Configuration.startMaximized = false;
         Configuration.screenshots = false;
-        Configuration.timeout = 4000;
+        Configuration.timeout = Poller.TIMEOUT_MS;
     }
 
     private void startDriver() {
         log.debug("Using '" + getBrowser() + "' driver for test");
+        currentWebDriver = "main";
+        if (getBrowser() == NONE)
+            return;
 
         switch (getBrowser()) {
             case CHROME:
@@ -160,8 +285,7 @@ public class TestManager {
                 throw new InvalidArgumentException("TestManager configure(): invalid browser value");
         }
 
-        currentWebDriver = "main";
-        webDrivers.put(currentWebDriver, WebDriverRunner.getWebDriver());
+        webDrivers.putIfAbsent(currentWebDriver, WebDriverRunner.getWebDriver());
         if (browser.equals(CHROME) || browser.equals(FIREFOX) || browser.equals(INTERNET_EXPLORER))
             maximizeBrowserWindow();
     }
@@ -174,8 +298,9 @@ public class TestManager {
         prefs.put("profile.content_settings.exceptions.plugins.*,*.per_resource.adobe-flash-player", 1);
         prefs.put("profile.default_content_setting_values.notifications", 2);
         prefs.put("PluginsAllowedForUrls", this.getStartUrl());
+        profile.apply(options, prefs);
         options.setExperimentalOption("prefs", prefs);
-        WebDriverRunner.setWebDriver(new ChromeDriver(options));
+        WebDriverRunner.setWebDriver(leaseChromeDriver(options));
     }
 
     private void initHeadlessBrowser() {
@@ -183,7 +308,10 @@ public class TestManager {
         ChromeOptions chromeOptions = new ChromeOptions();
         chromeOptions.addArguments("headless", "disable-gpu");
         chromeOptions.addArguments("window-size=1100,2200");
-        WebDriverRunner.setWebDriver(new ChromeDriver(chromeOptions));
+        Map<String, Object> prefs = new HashMap<>();
+        profile.apply(chromeOptions, prefs);
+        chromeOptions.setExperimentalOption("prefs", prefs);
+        WebDriverRunner.setWebDriver(leaseChromeDriver(chromeOptions));
     }
 
     private void initIncognitoBrowser() {
@@ -191,16 +319,50 @@ public class TestManager {
         ChromeOptions chromeOptions = new ChromeOptions();
         chromeOptions.addArguments("incognito", "disable-gpu");
         chromeOptions.addArguments("window-size=1100,2200");
-        WebDriverRunner.setWebDriver(new ChromeDriver(chromeOptions));
+        Map<String, Object> prefs = new HashMap<>();
+        profile.apply(chromeOptions, prefs);
+        chromeOptions.setExperimentalOption("prefs", prefs);
+        WebDriverRunner.setWebDriver(leaseChromeDriver(chromeOptions));
+    }
+
+    /**
+     * Takes a warm Chrome session of the same browser and profile from {@literal DriverPool}, Chrome is launched only if no idle session is available <br>
+     * Network traffic of the session is captured from here on, see {@literal NetworkCapture}, with the cdp transport the DevTools
+     * channel of the session is opened as well
+     *
+     * @param options - options a new Chrome is started with
+     * @return leased ChromeDriver
+     */
+    private WebDriver leaseChromeDriver(ChromeOptions options) {
+        if (testContext != null)
+            DriverPool.reserve(parallelThreads(), testContext.getName());
+        WebDriver driver = DriverPool.lease(getBrowser() + "/" + profile, () -> new ChromeDriver(options));
+        profile.afterLease(driver);
+        NetworkCapture.attach(driver);
+        if (transport == DriverTransport.CDP && CdpChannel.open(driver) == null)
+            log.warn("No DevTools channel for the cdp transport, element actions use WebDriver");
+        webDrivers.put(currentWebDriver, driver);
+        return driver;
+    }
+
+    /**
+     * Threads of the test that may hold a browser at the same time, the suite thread-count with parallel="tests"
+     *
+     * @return thread-count of the running {@literal <test>}, 1 if it is not parallel
+     */
+    private int parallelThreads() {
+        XmlTest xmlTest = testContext.getCurrentXmlTest();
+        return xmlTest.getParallel() != null && xmlTest.getParallel().isParallel() ? Math.max(1, xmlTest.getThreadCount()) : 1;
     }
 
     /**
      * Get main web driver.
      *
-     * @return instance of main WebDriver initiated in {@literal startDriver()}
+     * @return instance of main WebDriver initiated in {@literal startDriver()} for the thread owning this manager
      */
     public WebDriver getDriver() {
-        return getWebDriver();
+        WebDriver driver = currentWebDriver == null ? null : webDrivers.get(currentWebDriver);
+        return driver != null ? driver : getWebDriver();
     }
 
     private void maximizeBrowserWindow() {
@@ -222,4 +384,21 @@ public class TestManager {
         return browser;
     }
 
+    public BrowserProfile getProfile() {
+        return profile;
+    }
+
+    public DriverTransport getTransport() {
+        return transport;
+    }
+
+    /**
+     * DevTools channel for element actions of page objects
+     *
+     * @return open channel of the main WebDriver with the cdp transport, null with the webdriver transport or without a channel
+     */
+    public CdpChannel getCdpChannel() {
+        return transport == DriverTransport.CDP ? CdpChannel.of(getDriver()) : null;
+    }
+
 }
\ No newline at end of file
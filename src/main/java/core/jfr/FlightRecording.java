@@ -0,0 +1,94 @@
+package core.jfr;
+
+import core.listeners.ShardSelector;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.apache.logging.log4j.LogManager;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Java Flight Recorder recording of a suite, started with -Djfr={@literal default|profile|path to .jfc} <br>
+ * default has about 1% overhead, profile samples more (method profiling every 10 ms) <br>
+ * The recording is written at suite end to {@literal jfr.dir}, next to allure-results by default, open it in JDK Mission Control <br>
+ * Step, WebDriver command and REST call events of the framework carry the running test method, they are also recorded
+ * by any recording started outside, e.g. with -XX:StartFlightRecording
+ */
+public final class FlightRecording {
+
+    private static final org.apache.logging.log4j.Logger log = LogManager.getLogger(FlightRecording.class);
+
+    private static final String SETTINGS = System.getProperty("jfr", "");
+    private static final Path DIR = Paths.get(System.getProperty("jfr.dir",
+            Paths.get(System.getProperty("allure.result.directory", "allure-results")).toAbsolutePath().resolveSibling("jfr-results").toString()));
+
+    private static Recording recording;
+
+    private FlightRecording() {
+    }
+
+    /**
+     * Start recording the suite, does nothing if -Djfr is not set or a recording of this class is running
+     *
+     * @param suiteName - name of the suite, part of the file name
+     */
+    public static synchronized void start(String suiteName) {
+        if (SETTINGS.isEmpty() || "false".equals(SETTINGS) || recording != null)
+            return;
+        try {
+            Configuration configuration = "true".equals(SETTINGS) ? Configuration.getConfiguration("default")
+                    : SETTINGS.endsWith(".jfc") ? Configuration.create(Paths.get(SETTINGS)) : Configuration.getConfiguration(SETTINGS);
+            Files.createDirectories(DIR);
+            Path file = DIR.resolve(fileName(suiteName));
+            Recording started = new Recording(configuration);
+            started.setName(suiteName);
+            started.setToDisk(true);
+            started.setDestination(file);
+            started.start();
+            recording = started;
+            log.info("JFR recording '" + configuration.getName() + "' of suite '" + suiteName + "' started, writing to " + file);
+        } catch (IOException | ParseException | IllegalStateException | SecurityException e) {
+            log.error("Could not start JFR recording with settings '" + SETTINGS + "': " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stop the recording and write it to its file
+     */
+    public static synchronized void stop() {
+        if (recording == null)
+            return;
+        try {
+            recording.stop();
+            log.info("JFR recording written to " + recording.getDestination());
+        } catch (IllegalStateException e) {
+            log.error("Could not write JFR recording to " + recording.getDestination() + ": " + e.getMessage());
+        } finally {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    /**
+     * @return qualified name of the test method run by the current thread, thread name outside of tests, e.g. load users
+     */
+    public static String currentTest() {
+        ITestResult result = Reporter.getCurrentTestResult();
+        return result != null ? result.getMethod().getQualifiedName() : Thread.currentThread().getName();
+    }
+
+    private static String fileName(String suiteName) {
+        int[] shard = ShardSelector.currentShard();
+        return suiteName.replaceAll("[^A-Za-z0-9]", "_")
+                + (shard == null ? "" : "-shard-" + shard[0] + "-of-" + shard[1])
+                + "-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".jfr";
+    }
+}
@@ -0,0 +1,34 @@
+package core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One RestAssured request and its response, committed by {@literal RestTimingFilter}
+ */
+@Name("testautomation.RestCall")
+@Label("REST Call")
+@Category({"Test Automation", "REST"})
+@Description("Request sent through RestClient, from sending the request until the response is read")
+@StackTrace(false)
+public class RestCallEvent extends jdk.jfr.Event {
+
+    @Label("Method")
+    public String method;
+
+    @Label("Path")
+    @Description("Request path with numeric segments folded into {id}")
+    public String path;
+
+    @Label("URI")
+    public String uri;
+
+    @Label("Status Code")
+    public int status;
+
+    @Label("Test Method")
+    public String test;
+}
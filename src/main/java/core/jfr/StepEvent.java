@@ -0,0 +1,24 @@
+package core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One Allure @Step method, committed by {@literal StepTimingAspect}
+ */
+@Name("testautomation.Step")
+@Label("Step")
+@Category({"Test Automation", "Steps"})
+@Description("Method annotated with Allure @Step")
+@StackTrace(false)
+public class StepEvent extends jdk.jfr.Event {
+
+    @Label("Step")
+    public String step;
+
+    @Label("Test Method")
+    public String test;
+}
@@ -0,0 +1,36 @@
+package core.jfr;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.openqa.selenium.remote.RemoteWebDriver;
+
+/**
+ * Records every command RemoteWebDriver sends to the driver server as {@literal WebDriverCommandEvent},
+ * woven at load time by the aspectjweaver agent of surefire
+ */
+@Aspect
+public class WebDriverCommandAspect {
+
+    @Around("execution(* org.openqa.selenium.remote.RemoteWebDriver.execute(String, java.util.Map)) && this(driver) && args(command, ..)")
+    public Object recordCommand(ProceedingJoinPoint joinPoint, RemoteWebDriver driver, String command) throws Throwable {
+        WebDriverCommandEvent event = new WebDriverCommandEvent();
+        if (!event.isEnabled())
+            return joinPoint.proceed();
+        event.begin();
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            event.failure = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.command = command;
+                event.session = driver.getSessionId() == null ? null : driver.getSessionId().toString();
+                event.test = FlightRecording.currentTest();
+                event.commit();
+            }
+        }
+    }
+}
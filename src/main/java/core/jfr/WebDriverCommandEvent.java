@@ -0,0 +1,30 @@
+package core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One command of the WebDriver protocol, committed by {@literal WebDriverCommandAspect}
+ */
+@Name("testautomation.WebDriverCommand")
+@Label("WebDriver Command")
+@Category({"Test Automation", "WebDriver"})
+@Description("Command sent by RemoteWebDriver to the driver server, e.g. findElement or clickElement")
+@StackTrace(false)
+public class WebDriverCommandEvent extends jdk.jfr.Event {
+
+    @Label("Command")
+    public String command;
+
+    @Label("Session")
+    public String session;
+
+    @Label("Failure")
+    public String failure;
+
+    @Label("Test Method")
+    public String test;
+}
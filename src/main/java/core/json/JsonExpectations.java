@@ -0,0 +1,270 @@
+package core.json;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import io.restassured.response.Response;
+import org.apache.logging.log4j.LogManager;
+import org.hamcrest.Matcher;
+import org.hamcrest.StringDescription;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Assertions on a JSON body checked in one streaming pass, without building a tree of the document <br>
+ * Paths are dot separated names with array indexes: {@literal id}, {@literal category.name}, {@literal tags[0].name},
+ * {@literal [*].status} ({@literal [*]} is any index, "" is the root) <br>
+ * Values are String, Integer, Long, Double, Boolean or null, as RestAssured would give them for a matcher <br>
+ * Parts of the document no expectation can reach are skipped by the parser, all failures are reported together
+ */
+public final class JsonExpectations {
+
+    private static final org.apache.logging.log4j.Logger log = LogManager.getLogger(JsonExpectations.class);
+
+    private static final Object ANY_INDEX = new Object();
+
+    private final List<Expectation> expectations = new ArrayList<>();
+
+    private JsonExpectations() {
+    }
+
+    public static JsonExpectations create() {
+        return new JsonExpectations();
+    }
+
+    /**
+     * Every value at the path must match, at least one must exist
+     *
+     * @param path    - value path, {@literal [*]} matches all elements of an array
+     * @param matcher - Hamcrest matcher of the value
+     * @return this
+     */
+    public JsonExpectations expect(String path, Matcher<?> matcher) {
+        expectations.add(new Expectation(path, matcher, Mode.ALL));
+        return this;
+    }
+
+    /**
+     * At least one value at the path must match, e.g. a pet id in a list
+     *
+     * @param path    - value path, usually with {@literal [*]}
+     * @param matcher - Hamcrest matcher of the value
+     * @return this
+     */
+    public JsonExpectations expectAny(String path, Matcher<?> matcher) {
+        expectations.add(new Expectation(path, matcher, Mode.ANY));
+        return this;
+    }
+
+    /**
+     * Number of elements of the array at the path must match
+     *
+     * @param path    - array path, "" for a root array
+     * @param matcher - Hamcrest matcher of the size
+     * @return this
+     */
+    public JsonExpectations expectSize(String path, Matcher<? super Integer> matcher) {
+        expectations.add(new Expectation(path, matcher, Mode.SIZE));
+        return this;
+    }
+
+    /**
+     * Stream the response body once and check all expectations
+     *
+     * @param response - RestAssured response
+     * @throws AssertionError listing every failed expectation
+     */
+    public void verify(Response response) {
+        verify(response.asInputStream());
+    }
+
+    /**
+     * Stream a UTF-8 JSON document once and check all expectations, the stream is closed
+     *
+     * @param json - JSON document
+     * @throws AssertionError listing every failed expectation
+     */
+    public void verify(InputStream json) {
+        for (Expectation expectation : expectations)
+            expectation.reset();
+        try (JsonReader reader = new JsonReader(new InputStreamReader(json, StandardCharsets.UTF_8))) {
+            read(reader, new ArrayList<>());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read JSON body", e);
+        }
+
+        List<String> failures = new ArrayList<>();
+        for (Expectation expectation : expectations) {
+            String failure = expectation.failure();
+            if (failure != null)
+                failures.add(failure);
+        }
+        if (!failures.isEmpty())
+            throw new AssertionError(failures.size() + " of " + expectations.size() + " JSON expectations failed:\n" + String.join("\n", failures));
+        log.debug("All " + expectations.size() + " JSON expectations matched");
+    }
+
+    private void read(JsonReader reader, List<Object> path) throws IOException {
+        if (!reachable(path)) {
+            reader.skipValue();
+            return;
+        }
+        JsonToken token = reader.peek();
+        switch (token) {
+            case BEGIN_OBJECT:
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    path.add(reader.nextName());
+                    read(reader, path);
+                    path.remove(path.size() - 1);
+                }
+                reader.endObject();
+                break;
+            case BEGIN_ARRAY:
+                reader.beginArray();
+                int size = 0;
+                while (reader.hasNext()) {
+                    path.add(size++);
+                    read(reader, path);
+                    path.remove(path.size() - 1);
+                }
+                reader.endArray();
+                for (Expectation expectation : expectations) {
+                    if (expectation.mode == Mode.SIZE && expectation.matches(path))
+                        expectation.check(size);
+                }
+                break;
+            case STRING:
+                checkValue(path, reader.nextString());
+                break;
+            case NUMBER:
+                checkValue(path, number(reader.nextString()));
+                break;
+            case BOOLEAN:
+                checkValue(path, reader.nextBoolean());
+                break;
+            case NULL:
+                reader.nextNull();
+                checkValue(path, null);
+                break;
+            default:
+                throw new IllegalStateException("Unexpected JSON token " + token + " at " + reader.getPath());
+        }
+    }
+
+    private void checkValue(List<Object> path, Object value) {
+        for (Expectation expectation : expectations) {
+            if (expectation.mode != Mode.SIZE && expectation.matches(path))
+                expectation.check(value);
+        }
+    }
+
+    private boolean reachable(List<Object> path) {
+        for (Expectation expectation : expectations) {
+            if (expectation.startsWith(path))
+                return true;
+        }
+        return false;
+    }
+
+    private static Object number(String value) {
+        try {
+            long number = Long.parseLong(value);
+            return number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE ? (Object) (int) number : (Object) number;
+        } catch (NumberFormatException e) {
+            return new BigDecimal(value).doubleValue();
+        }
+    }
+
+    private static List<Object> parse(String path) {
+        List<Object> segments = new ArrayList<>();
+        for (String part : path.isEmpty() ? new String[0] : path.split("\\.")) {
+            int bracket = part.indexOf('[');
+            String name = bracket < 0 ? part : part.substring(0, bracket);
+            if (!name.isEmpty())
+                segments.add(name);
+            while (bracket >= 0) {
+                int close = part.indexOf(']', bracket);
+                if (close < 0)
+                    throw new IllegalArgumentException("Unclosed [ in JSON path '" + path + "'");
+                String index = part.substring(bracket + 1, close).trim();
+                segments.add("*".equals(index) ? ANY_INDEX : (Object) Integer.parseInt(index));
+                bracket = part.indexOf('[', close);
+            }
+        }
+        return segments;
+    }
+
+    private enum Mode {
+        ALL, ANY, SIZE
+    }
+
+    private static final class Expectation {
+        private final String path;
+        private final List<Object> segments;
+        private final Matcher<?> matcher;
+        private final Mode mode;
+        private int found;
+        private int matched;
+        private String firstMismatch;
+
+        private Expectation(String path, Matcher<?> matcher, Mode mode) {
+            this.path = path;
+            this.segments = parse(path);
+            this.matcher = matcher;
+            this.mode = mode;
+        }
+
+        private void reset() {
+            found = 0;
+            matched = 0;
+            firstMismatch = null;
+        }
+
+        private boolean startsWith(List<Object> current) {
+            return current.size() <= segments.size() && matchesPrefix(current);
+        }
+
+        private boolean matches(List<Object> current) {
+            return current.size() == segments.size() && matchesPrefix(current);
+        }
+
+        private boolean matchesPrefix(List<Object> current) {
+            for (int i = 0; i < current.size(); i++) {
+                Object segment = segments.get(i);
+                if (segment == ANY_INDEX ? !(current.get(i) instanceof Integer) : !segment.equals(current.get(i)))
+                    return false;
+            }
+            return true;
+        }
+
+        private void check(Object value) {
+            found++;
+            if (matcher.matches(value)) {
+                matched++;
+            } else if (firstMismatch == null) {
+                StringDescription mismatch = new StringDescription();
+                matcher.describeMismatch(value, mismatch);
+                firstMismatch = mismatch.toString();
+            }
+        }
+
+        private String failure() {
+            String expected = StringDescription.toString(matcher);
+            String name = mode == Mode.SIZE ? "size of '" + path + "'" : "'" + path + "'";
+            if (found == 0)
+                return name + " not found, expected " + expected;
+            if (mode == Mode.ANY && matched == 0)
+                return "none of " + found + " values of " + name + " is " + expected + ", e.g. " + firstMismatch;
+            if (mode != Mode.ANY && matched < found)
+                return name + " expected " + expected + " but " + firstMismatch + (found > 1 ? " (" + (found - matched) + " of " + found + " values)" : "");
+            return null;
+        }
+    }
+}
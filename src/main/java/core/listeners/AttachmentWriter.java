@@ -0,0 +1,228 @@
+package core.listeners;
+
+import io.qameta.allure.Allure;
+import io.qameta.allure.AllureLifecycle;
+import io.qameta.allure.model.Attachment;
+import org.apache.logging.log4j.LogManager;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes screenshots and other attachments to disk and to Allure on a background thread <br>
+ * Content is captured in memory by the test thread, only the Allure attachment is registered synchronously <br>
+ * Storage is content-addressed: a blob is named by the SHA-256 of its bytes and written once, to {@literal attachments.dir} and
+ * to allure-results, every later attachment with the same content only references it, so mass failures on one broken page
+ * add report entries but no files <br>
+ * With {@literal attachments.similarity} (bits of a 64 bit difference hash, off by default) a screenshot close to one of the
+ * last {@literal SIMILAR_CANDIDATES} screenshots references that one instead, e.g. pages differing only by a clock or a cursor <br>
+ * Queue is bounded by {@literal attachments.queue}, when it is full the test thread writes the attachment itself <br>
+ * Files go to {@literal attachments.dir}, next to the ReportNG pages linking them
+ */
+public final class AttachmentWriter {
+
+    private static final org.apache.logging.log4j.Logger log = LogManager.getLogger(AttachmentWriter.class);
+
+    public static final Path ATTACHMENTS_DIR = Paths.get(System.getProperty("attachments.dir", "target/surefire-reports/html/screenshots"));
+    private static final Path ALLURE_RESULTS_DIR = Paths.get(System.getProperty("allure.results.directory", "allure-results"));
+    private static final int QUEUE_CAPACITY = Integer.getInteger("attachments.queue", 64);
+    private static final int SIMILARITY_BITS = Integer.getInteger("attachments.similarity", -1);
+    private static final int SIMILAR_CANDIDATES = 256;
+    private static final long FLUSH_TIMEOUT_SEC = 60;
+
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+            runnable -> {
+                Thread thread = new Thread(runnable, "attachment-writer");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    private static final Object PENDING_LOCK = new Object();
+    private static int pending;
+
+    private static final Set<String> STORED = ConcurrentHashMap.newKeySet();
+    private static final Map<Long, String> RECENT_SCREENSHOTS = new LinkedHashMap<>();
+    private static final AtomicInteger ATTACHMENTS = new AtomicInteger();
+    private static final AtomicInteger REUSED = new AtomicInteger();
+
+    private AttachmentWriter() {
+    }
+
+    /**
+     * Attach content to the Allure test running on this thread and store it as {@literal ATTACHMENTS_DIR/<hash><extension>},
+     * content stored before is not written again
+     *
+     * @param name      - attachment title in the report
+     * @param type      - MIME type
+     * @param extension - file extension with the dot, e.g. ".png"
+     * @param content   - captured bytes, must not be modified afterwards
+     * @return file name of the content in {@literal ATTACHMENTS_DIR}, the same for the same content
+     */
+    public static String write(String name, String type, String extension, byte[] content) {
+        ATTACHMENTS.incrementAndGet();
+        String blob = similarScreenshot(type, content);
+        if (blob == null)
+            blob = sha256(content) + extension;
+        String fileName = blob;
+        String source = blob.replace(".", "-attachment.");
+        reference(name, type, source);
+
+        if (!STORED.add(fileName)) {
+            REUSED.incrementAndGet();
+            return fileName;
+        }
+        synchronized (PENDING_LOCK) {
+            pending++;
+        }
+        EXECUTOR.execute(() -> {
+            try {
+                // blobs of earlier runs are kept until the directories are cleaned
+                writeFile(ALLURE_RESULTS_DIR.resolve(source), content);
+                writeFile(ATTACHMENTS_DIR.resolve(fileName), content);
+            } finally {
+                synchronized (PENDING_LOCK) {
+                    pending--;
+                    PENDING_LOCK.notifyAll();
+                }
+            }
+        });
+        return fileName;
+    }
+
+    /**
+     * Log how many attachments referenced a stored blob instead of writing one, does nothing if nothing was attached
+     */
+    public static void logStatistics() {
+        if (ATTACHMENTS.get() > 0)
+            log.info(ATTACHMENTS.get() + " attachment(s), " + REUSED.get() + " of them reused a stored blob");
+    }
+
+    /**
+     * Block until every attachment queued so far is written
+     */
+    public static void flush() {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(FLUSH_TIMEOUT_SEC);
+        synchronized (PENDING_LOCK) {
+            while (pending > 0) {
+                long waitMs = deadline - System.currentTimeMillis();
+                if (waitMs <= 0) {
+                    log.error(pending + " attachment(s) were not written in " + FLUSH_TIMEOUT_SEC + " s");
+                    return;
+                }
+                try {
+                    PENDING_LOCK.wait(waitMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Add an attachment pointing to a stored blob to the current step or test, as {@literal AllureLifecycle.prepareAttachment} does
+     * with a fresh file
+     */
+    private static void reference(String name, String type, String source) {
+        AllureLifecycle lifecycle = Allure.getLifecycle();
+        Optional<String> current = lifecycle.getCurrentTestCaseOrStep();
+        if (!current.isPresent())
+            return;
+        Attachment attachment = new Attachment().setName(name).setType(type).setSource(source);
+        if (current.equals(lifecycle.getCurrentTestCase()))
+            lifecycle.updateTestCase(current.get(), test -> test.getAttachments().add(attachment));
+        else
+            lifecycle.updateStep(current.get(), step -> step.getAttachments().add(attachment));
+    }
+
+    private static void writeFile(Path file, byte[] content) {
+        if (Files.exists(file))
+            return;
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(file, content);
+        } catch (IOException e) {
+            log.error("Could not write attachment " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest)
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * @return blob of a recent screenshot whose difference hash differs by at most {@literal SIMILARITY_BITS}, null if there is none
+     * and the screenshot is stored by its own content
+     */
+    private static String similarScreenshot(String type, byte[] content) {
+        if (SIMILARITY_BITS < 0 || !"image/png".equals(type))
+            return null;
+        long hash;
+        try {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(content));
+            if (image == null)
+                return null;
+            hash = differenceHash(image);
+        } catch (IOException e) {
+            return null;
+        }
+        synchronized (RECENT_SCREENSHOTS) {
+            for (Map.Entry<Long, String> recent : RECENT_SCREENSHOTS.entrySet()) {
+                if (Long.bitCount(recent.getKey() ^ hash) <= SIMILARITY_BITS)
+                    return recent.getValue();
+            }
+            RECENT_SCREENSHOTS.put(hash, sha256(content) + ".png");
+            if (RECENT_SCREENSHOTS.size() > SIMILAR_CANDIDATES) {
+                Iterator<Long> oldest = RECENT_SCREENSHOTS.keySet().iterator();
+                oldest.next();
+                oldest.remove();
+            }
+            return RECENT_SCREENSHOTS.get(hash);
+        }
+    }
+
+    /**
+     * 64 bit dHash: the image is shrunk to 9x8 grey pixels, each bit tells whether a pixel is brighter than its right neighbour
+     */
+    private static long differenceHash(BufferedImage image) {
+        BufferedImage small = new BufferedImage(9, 8, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = small.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(image, 0, 0, 9, 8, null);
+        graphics.dispose();
+        long hash = 0;
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++)
+                hash = hash << 1 | (small.getRaster().getSample(x, y, 0) > small.getRaster().getSample(x + 1, y, 0) ? 1 : 0);
+        }
+        return hash;
+    }
+}
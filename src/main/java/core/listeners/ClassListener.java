@@ -1,50 +1,69 @@
 package core.listeners;
 
 import com.codeborne.selenide.WebDriverRunner;
+import core.DriverPool;
+import core.NetworkCapture;
 import core.TestManager;
+import core.jfr.FlightRecording;
+import core.server.PetStoreServer;
+import core.metrics.StepTimings;
+import core.reporter.TestNGAppender;
 import org.apache.logging.log4j.LogManager;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
 import org.testng.*;
-import ru.yandex.qatools.allure.annotations.Attachment;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
+import java.nio.charset.StandardCharsets;
 
-
-import static com.codeborne.selenide.Selenide.screenshot;
-
-public class ClassListener implements ITestListener {
+public class ClassListener implements ITestListener, ISuiteListener {
 
     private static final org.apache.logging.log4j.Logger log = LogManager.getLogger(ClassListener.class);
+    // routed to the console only in log4j2.xml, headers are not part of the test output in the report
+    private static final org.apache.logging.log4j.Logger header = LogManager.getLogger(ClassListener.class.getName() + ".header");
+
+    private static final int PRETTY_SIZE = 110;
+    private static final String PADDING = new String(new char[PRETTY_SIZE / 2]).replace('\0', ' ');
+    private static final String ANSI_RESET = "\u001B[0m";
+    private static final String ANSI_HEADING = "\u001B[1;47m";
 
     @Override
     public void onTestStart(ITestResult testResult) {
+        // bind a manager and webdriver to the thread running this test before the test touches Selenide
+        TestManager.findActualInstance();
+        dropNetworkCapture();
         printHeader("Starting test " + testResult.getMethod().getQualifiedName());
     }
 
     @Override
     public void onTestSuccess(ITestResult testResult) {
+        // lines of the test are written to its output by a background thread
+        TestNGAppender.flushAll();
         if (org.testng.Reporter.getOutput(testResult).size() == 0) log.warn("The test has succeeded but no output was generated. Please make sure the test outputs some results also when successful.");
+        TestHistory.record(testResult);
+        dropNetworkCapture();
         printHeader("Test completed " + testResult.getMethod().getQualifiedName());
-        System.out.println();
     }
 
     @Override
     public void onTestFailure(ITestResult testResult) {
-        if (WebDriverRunner.hasWebDriverStarted()) takeScreenshot(testResult);
+        TestHistory.record(testResult);
+        if (WebDriverRunner.hasWebDriverStarted()) {
+            takeScreenshot(testResult);
+            attachPageSource(testResult);
+            attachNetworkCapture(testResult);
+        }
         printHeader("Test failed " + testResult.getMethod().getQualifiedName());
     }
 
     @Override
     public void onTestSkipped(ITestResult testResult) {
+        TestHistory.record(testResult);
         printHeader("Test skipped " + testResult.getMethod().getQualifiedName());
     }
 
     @Override
     public void onTestFailedButWithinSuccessPercentage(ITestResult testResult) {
+        TestHistory.record(testResult);
         printHeader("Test completed within % " + testResult.getMethod().getQualifiedName());
     }
 
@@ -55,67 +74,96 @@ public class ClassListener implements ITestListener {
 
     @Override
     public void onFinish(ITestContext testContext) {
-        closeAllWebDrivers();
+        closeAllWebDrivers(testContext);
+        AttachmentWriter.flush();
     }
 
-    void closeAllWebDrivers() {
-        if (WebDriverRunner.hasWebDriverStarted()) {
-            TestManager.getActualInstance().getDriver().close();
-            WebDriverRunner.closeWebDriver();
-        }
+    @Override
+    public void onStart(ISuite suite) {
+        FlightRecording.start(suite.getName());
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        DriverPool.drain();
+        PetStoreServer.stopShared();
+        AttachmentWriter.flush();
+        AttachmentWriter.logStatistics();
+        StepTimings.writeReport();
+        TestHistory.save();
+        FlightRecording.stop();
+        TestNGAppender.flushAll();
     }
 
-    @Attachment(value = "Screenshot of {0}", type = "image/png")
-    private byte[] takeScreenshot(ITestResult result) {
+    void closeAllWebDrivers(ITestContext testContext) {
+        TestManager.closeAll(testContext);
+    }
+
+    private void takeScreenshot(ITestResult result) {
         try {
-            String screenshotName = result.getTestContext().getCurrentXmlTest().getName().replaceAll("[^A-Za-z0-9]", "_") + "_" + String.valueOf(System.currentTimeMillis());
-            String absPath = screenshot(screenshotName);
-            String src = "screenshots/" + screenshotName + ".png";
+            byte[] png = ((TakesScreenshot) WebDriverRunner.getWebDriver()).getScreenshotAs(OutputType.BYTES);
+            String src = "screenshots/" + AttachmentWriter.write("Screenshot of " + result.getMethod().getQualifiedName(), "image/png", ".png", png);
             // print html to the report only, not to console
             org.testng.Reporter.log("<b>Screenshot</b><p><a target=\"_blank\" href='" + src + "'><img width=500 src='" + src + "' border=1></a></p>");
-            return Files.readAllBytes(Paths.get(absPath));
         } catch (Exception e) {
             log.error("Could not take screenshot");
         }
-        return null;
     }
 
-    public static void printHeader(String message) {
+    /**
+     * DOM of the failed page, identical pages of a mass failure share one stored file
+     */
+    private void attachPageSource(ITestResult result) {
+        try {
+            byte[] html = WebDriverRunner.getWebDriver().getPageSource().getBytes(StandardCharsets.UTF_8);
+            String src = "screenshots/" + AttachmentWriter.write("Page source of " + result.getMethod().getQualifiedName(), "text/html", ".html", html);
+            org.testng.Reporter.log("<b>Page source</b><p><a target=\"_blank\" href='" + src + "'>" + src + "</a></p>");
+        } catch (Exception e) {
+            log.error("Could not save page source");
+        }
+    }
 
-        final String ANSI_RESET = "\u001B[0m";
-        final String ANSI_HEADING = "\u001B[1;47m";
-        final String ANSI_BLACK = "\u001B[30m";
-        final String ANSI_RED = "\u001B[31m";
-        final String ANSI_GREEN = "\u001B[32m";
-        final String ANSI_YELLOW = "\u001B[33m";
-        final String ANSI_BLUE = "\u001B[34m";
-        final String ANSI_PURPLE = "\u001B[35m";
-        final String ANSI_CYAN = "\u001B[36m";
-        final String ANSI_WHITE = "\u001B[37m";
-        final String ANSI_GREY = "\u001B[37m";
-
-        StringBuffer consoleMessage = new StringBuffer();
-        DateFormat dateFormat = new SimpleDateFormat("HH:mm:ss.mmm");
-        consoleMessage.append(dateFormat.format(System.currentTimeMillis())).append(" ");
-
-        // console out
-        System.out.println(consoleMessage.append(ANSI_HEADING).append(padMessageToPrettyLength(message)).append(ANSI_RESET));
+    /**
+     * Network traffic of the failed test as HAR, e.g. the calls the Swagger UI made before a failed check
+     */
+    private void attachNetworkCapture(ITestResult result) {
+        NetworkCapture capture = NetworkCapture.of(WebDriverRunner.getWebDriver());
+        if (capture == null || capture.isEmpty())
+            return;
+        try {
+            String src = "screenshots/" + AttachmentWriter.write("Network traffic of " + result.getMethod().getQualifiedName(), "application/json", ".har",
+                    capture.toHar(result.getMethod().getQualifiedName()));
+            org.testng.Reporter.log("<b>Network traffic</b><p><a target=\"_blank\" href='" + src + "'>" + src + "</a></p>");
+        } catch (RuntimeException e) {
+            log.error("Could not attach network traffic: " + e.getMessage());
+        } finally {
+            capture.clear();
+        }
+    }
+
+    /**
+     * Traffic of passed tests is never written, the ring of the session only keeps what the next test does
+     */
+    private void dropNetworkCapture() {
+        if (!WebDriverRunner.hasWebDriverStarted())
+            return;
+        NetworkCapture capture = NetworkCapture.of(WebDriverRunner.getWebDriver());
+        if (capture != null)
+            capture.clear();
+    }
+
+    public static void printHeader(String message) {
+        // console out, timestamp comes from the log pattern and the line keeps its place among the async console lines
+        header.info(ANSI_HEADING + padMessageToPrettyLength(message) + ANSI_RESET);
 
         // no reportNG out
     }
 
-    private static String padMessageToPrettyLength(String message) {
-        final short prettySize = 110;
-        int padding = (int) Math.floor((prettySize - message.length()) / 2);
-        StringBuffer outputString = new StringBuffer();
-        for (int i = 1; i <= padding; i++) {
-            outputString.append(" ");
-        }
-        outputString.append(message);
-        for (int i = 1; i <= padding; i++) {
-            outputString.append(" ");
-        }
-        if (outputString.length() < prettySize) outputString.append(" ");
+    static String padMessageToPrettyLength(String message) {
+        int padding = Math.max(0, (PRETTY_SIZE - message.length()) / 2);
+        StringBuilder outputString = new StringBuilder(Math.max(PRETTY_SIZE, message.length()));
+        outputString.append(PADDING, 0, padding).append(message).append(PADDING, 0, padding);
+        if (outputString.length() < PRETTY_SIZE) outputString.append(' ');
         return outputString.toString();
     }
 }
@@ -0,0 +1,110 @@
+package core.listeners;
+
+import org.apache.logging.log4j.LogManager;
+import org.testng.IMethodInstance;
+import org.testng.ITestContext;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Starts the longest work first, so a slow {@literal <test>} or class does not start last and stretch a parallel run <br>
+ * {@literal <test>} blocks of a suite are reordered by their durations in {@literal TestHistory}, with parallel="tests" the thread pool takes them in this order <br>
+ * TestNG runs {@literal <test>} blocks sorted by their position in the XML and has no setter for it, the position is rewritten by reflection <br>
+ * Inside a {@literal <test>} whole classes are reordered, methods of a class keep their order, so priorities and dependencies still hold <br>
+ * Tests and classes without history count as the average known one <br>
+ * Applied by {@literal SuitePlanner} to the classes left after sharding
+ */
+public final class LongestFirstScheduler {
+
+    private static final org.apache.logging.log4j.Logger log = LogManager.getLogger(LongestFirstScheduler.class);
+
+    private LongestFirstScheduler() {
+    }
+
+    /**
+     * @param suite - suite whose {@literal <test>} blocks are reordered
+     */
+    static void order(XmlSuite suite) {
+        Map<XmlTest, Long> durations = new HashMap<>();
+        for (XmlTest test : suite.getTests()) {
+            long total = -1;
+            for (XmlClass xmlClass : test.getXmlClasses()) {
+                long millis = TestHistory.getClassMillis(xmlClass.getName());
+                if (millis >= 0)
+                    total = Math.max(total, 0) + millis;
+            }
+            durations.put(test, total);
+        }
+        fillUnknown(durations);
+        suite.getTests().sort(Comparator.comparingLong((XmlTest test) -> durations.get(test)).reversed());
+        if (renumber(suite.getTests()) && suite.getTests().size() > 1)
+            log.debug("Suite '" + suite.getName() + "' test order: " + names(suite.getTests(), durations));
+    }
+
+    /**
+     * @param methods - methods of one {@literal <test>}
+     * @return methods with whole classes reordered
+     */
+    static List<IMethodInstance> order(List<IMethodInstance> methods, ITestContext context) {
+        Map<String, List<IMethodInstance>> byClass = new LinkedHashMap<>();
+        for (IMethodInstance method : methods)
+            byClass.computeIfAbsent(method.getMethod().getTestClass().getName(), k -> new ArrayList<>()).add(method);
+        if (byClass.size() < 2)
+            return methods;
+
+        Map<String, Long> durations = new HashMap<>();
+        for (String className : byClass.keySet())
+            durations.put(className, TestHistory.getClassMillis(className));
+        fillUnknown(durations);
+
+        List<String> classes = new ArrayList<>(byClass.keySet());
+        classes.sort(Comparator.comparingLong((String className) -> durations.get(className)).reversed());
+        List<IMethodInstance> ordered = new ArrayList<>(methods.size());
+        for (String className : classes)
+            ordered.addAll(byClass.get(className));
+        log.debug("Test '" + context.getName() + "' class order: " + classes);
+        return ordered;
+    }
+
+    static boolean renumber(List<XmlTest> tests) {
+        try {
+            Field index = XmlTest.class.getDeclaredField("m_index");
+            index.setAccessible(true);
+            for (int i = 0; i < tests.size(); i++)
+                index.setInt(tests.get(i), i);
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("Could not reorder <test> blocks, they run in XML order: " + e);
+            return false;
+        }
+    }
+
+    private static <K> void fillUnknown(Map<K, Long> durations) {
+        long knownTotal = 0;
+        int known = 0;
+        for (long millis : durations.values()) {
+            if (millis >= 0) {
+                knownTotal += millis;
+                known++;
+            }
+        }
+        long average = known == 0 ? 0 : knownTotal / known;
+        durations.replaceAll((key, millis) -> millis >= 0 ? millis : average);
+    }
+
+    private static String names(List<XmlTest> tests, Map<XmlTest, Long> durations) {
+        List<String> names = new ArrayList<>();
+        for (XmlTest test : tests)
+            names.add(test.getName() + " (" + durations.get(test) / 1000 + " s)");
+        return String.join(", ", names);
+    }
+}
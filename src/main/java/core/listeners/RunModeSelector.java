@@ -0,0 +1,190 @@
+package core.listeners;
+
+import org.apache.logging.log4j.LogManager;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.IMethodInstance;
+import org.testng.ITestResult;
+import org.testng.SkipException;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Run modes for local iterations, chosen by -Dtestrun (comma separated) and -Dfailfast, based on {@literal TestHistory} <br>
+ * failed-first - {@literal <test>} blocks and classes that failed last run start first, methods of a class keep their order <br>
+ * impacted - only classes affected by files changed since the last green run (git diff plus untracked files):
+ * the test class itself, page objects and data files it used, classes that failed or never ran. A change of a page object no test
+ * is known to use, of anything else under src or of pom.xml runs everything, as does a missing last green commit <br>
+ * -Dfailfast=true - test methods after the first failure are skipped <br>
+ * Selection and order are applied by {@literal SuitePlanner}, this listener only skips tests for -Dfailfast
+ */
+public class RunModeSelector implements IInvokedMethodListener {
+
+    private static final org.apache.logging.log4j.Logger log = LogManager.getLogger(RunModeSelector.class);
+
+    public static final String FAILED_FIRST = "failed-first";
+    public static final String IMPACTED = "impacted";
+    private static final boolean FAIL_FAST = Boolean.getBoolean("failfast");
+    private static final String PAGES_DIR = "src/main/java/pages/";
+    private static final String TEST_SOURCES_DIR = "src/test/java/";
+    private static final String SUITES_DIR = "src/test/resources/suites/";
+
+    private static final AtomicReference<String> firstFailure = new AtomicReference<>();
+
+    /**
+     * Start {@literal <test>} blocks with a failed class first, the sort is stable so the order among the others is kept
+     *
+     * @param suite - suite whose {@literal <test>} blocks are reordered
+     */
+    static void orderFailedFirst(XmlSuite suite) {
+        suite.getTests().sort(Comparator.comparing((XmlTest test) -> !hasFailed(test)));
+        LongestFirstScheduler.renumber(suite.getTests());
+    }
+
+    /**
+     * @param methods - methods of one {@literal <test>}
+     * @return methods of failed classes first, otherwise in the given order
+     */
+    static List<IMethodInstance> orderFailedFirst(List<IMethodInstance> methods) {
+        Map<String, List<IMethodInstance>> byClass = new LinkedHashMap<>();
+        for (IMethodInstance method : methods)
+            byClass.computeIfAbsent(method.getMethod().getTestClass().getName(), k -> new ArrayList<>()).add(method);
+        List<IMethodInstance> ordered = new ArrayList<>(methods.size());
+        for (Map.Entry<String, List<IMethodInstance>> entry : byClass.entrySet()) {
+            if (TestHistory.hasFailed(entry.getKey()))
+                ordered.addAll(entry.getValue());
+        }
+        for (Map.Entry<String, List<IMethodInstance>> entry : byClass.entrySet()) {
+            if (!TestHistory.hasFailed(entry.getKey()))
+                ordered.addAll(entry.getValue());
+        }
+        return ordered;
+    }
+
+    @Override
+    public void beforeInvocation(IInvokedMethod method, ITestResult testResult) {
+        String failure = firstFailure.get();
+        if (FAIL_FAST && failure != null && method.isTestMethod())
+            throw new SkipException("Skipped by -Dfailfast after failure of " + failure);
+    }
+
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult testResult) {
+        if (FAIL_FAST && method.isTestMethod() && testResult.getStatus() == ITestResult.FAILURE
+                && firstFailure.compareAndSet(null, testResult.getTestClass().getName() + "." + testResult.getMethod().getMethodName()))
+            log.warn("-Dfailfast: " + firstFailure.get() + " failed, remaining tests are skipped");
+    }
+
+    /**
+     * Keep only the classes impacted by changes since the last green run
+     *
+     * @param suite - suite to reduce
+     */
+    static void selectImpacted(XmlSuite suite) {
+        String lastGreen = TestHistory.getLastGreenCommit();
+        if (lastGreen == null) {
+            log.info("Suite '" + suite.getName() + "': no green run recorded yet, running all tests");
+            return;
+        }
+        List<String> changed = TestHistory.changedFilesSince(lastGreen);
+        if (changed == null) {
+            log.info("Suite '" + suite.getName() + "': changes since " + lastGreen + " unknown, running all tests");
+            return;
+        }
+
+        Set<String> classes = new HashSet<>();
+        for (XmlTest test : suite.getTests()) {
+            for (XmlClass xmlClass : test.getXmlClasses())
+                classes.add(xmlClass.getName());
+        }
+        Map<String, List<String>> usage = TestHistory.usage();
+        Set<String> impacted = new HashSet<>();
+        for (String file : changed) {
+            String reason = impact(file, suite, classes, usage, impacted);
+            if (reason != null) {
+                log.info("Suite '" + suite.getName() + "': " + file + " changed, " + reason + ", running all tests");
+                return;
+            }
+        }
+        for (String className : classes) {
+            if (!TestHistory.isKnown(className) || TestHistory.hasFailed(className))
+                impacted.add(className);
+        }
+
+        int total = classes.size();
+        classes.retainAll(impacted);
+        for (XmlTest test : suite.getTests())
+            test.getXmlClasses().removeIf(xmlClass -> !classes.contains(xmlClass.getName()));
+        suite.getTests().removeIf(test -> test.getXmlClasses().isEmpty() && test.getXmlPackages().isEmpty());
+        log.info(String.format("Suite '%s': %d of %d classes impacted by %d files changed since %s",
+                suite.getName(), classes.size(), total, changed.size(), lastGreen));
+    }
+
+    /**
+     * Adds classes impacted by a changed file
+     *
+     * @return reason to run everything, null if the impact is known
+     */
+    private static String impact(String file, XmlSuite suite, Set<String> classes, Map<String, List<String>> usage, Set<String> impacted) {
+        if (file.startsWith(TEST_SOURCES_DIR) && file.endsWith(".java")) {
+            String className = file.substring(TEST_SOURCES_DIR.length(), file.length() - ".java".length()).replace('/', '.');
+            if (classes.contains(className) || TestHistory.isKnown(className)) {
+                impacted.add(className);
+                return null;
+            }
+        }
+        boolean used = false;
+        for (Map.Entry<String, List<String>> entry : usage.entrySet()) {
+            for (String usedFile : entry.getValue()) {
+                if (file.equals(usedFile) || file.endsWith("/" + usedFile) || usedFile.endsWith("/" + file)) {
+                    impacted.add(entry.getKey());
+                    used = true;
+                }
+            }
+        }
+        if (used)
+            return null;
+        if (file.startsWith(PAGES_DIR))
+            return "no test is known to use it";
+        if (file.startsWith(SUITES_DIR))
+            return suite.getFileName() != null && suite.getFileName().replace('\\', '/').endsWith(file) ? "it is the suite" : null;
+        if (file.startsWith("src/") || file.equals("pom.xml"))
+            return "it is not a page object or data file of a known test";
+        return null;
+    }
+
+    private static boolean hasFailed(XmlTest test) {
+        for (XmlClass xmlClass : test.getXmlClasses()) {
+            if (TestHistory.hasFailed(xmlClass.getName()))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return modes of -Dtestrun
+     * @throws IllegalArgumentException for an unknown mode
+     */
+    static Set<String> modes() {
+        Set<String> modes = new HashSet<>();
+        for (String mode : Arrays.asList(System.getProperty("run", "").split(","))) {
+            if (mode.trim().isEmpty())
+                continue;
+            if (!FAILED_FIRST.equals(mode.trim()) && !IMPACTED.equals(mode.trim()))
+                throw new IllegalArgumentException("-Dtestrun must be " + FAILED_FIRST + " and/or " + IMPACTED + ", but was '" + mode.trim() + "'");
+            modes.add(mode.trim());
+        }
+        return modes;
+    }
+}
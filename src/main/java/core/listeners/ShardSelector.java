@@ -0,0 +1,117 @@
+package core.listeners;
+
+import org.apache.logging.log4j.LogManager;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Keeps only the test classes of one shard with -Dshard=i/n (1 &lt;= i &lt;= n), so n JVMs or CI nodes run a suite together <br>
+ * Whole classes are assigned, methods of a class depend on each other through priorities and shared page objects <br>
+ * Classes are spread longest first to the shard with the least work so far, using durations of {@literal TestHistory},
+ * classes without history count as the average known class <br>
+ * Every shard computes the same split as long as all of them read the same history file <br>
+ * Applied by {@literal SuitePlanner}, {@literal <test>} blocks left without classes are removed
+ */
+public final class ShardSelector {
+
+    private static final org.apache.logging.log4j.Logger log = LogManager.getLogger(ShardSelector.class);
+
+    private ShardSelector() {
+    }
+
+    /**
+     * Keep only the classes of the current shard, does nothing if the run is not sharded
+     *
+     * @param suite - suite to reduce
+     */
+    static void select(XmlSuite suite) {
+        int[] shard = currentShard();
+        if (shard != null)
+            select(suite, shard[0], shard[1]);
+    }
+
+    /**
+     * @return 1-based index and count of -Dshard, null if the run is not sharded
+     * @throws IllegalArgumentException if -Dshard is not like i/n
+     */
+    public static int[] currentShard() {
+        String shard = System.getProperty("shard");
+        if (shard == null || shard.trim().isEmpty())
+            return null;
+        String[] parts = shard.trim().split("/");
+        int index;
+        int count;
+        try {
+            index = Integer.parseInt(parts[0].trim());
+            count = Integer.parseInt(parts[1].trim());
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("-Dshard must look like i/n, e.g. 2/4, but was '" + shard + "'");
+        }
+        if (count < 1 || index < 1 || index > count)
+            throw new IllegalArgumentException("-Dshard index must be between 1 and " + count + ", but was '" + shard + "'");
+        return new int[]{index, count};
+    }
+
+    private static void select(XmlSuite suite, int index, int count) {
+        List<Unit> units = new ArrayList<>();
+        for (XmlTest test : suite.getTests()) {
+            for (XmlClass xmlClass : test.getXmlClasses())
+                units.add(new Unit(test, xmlClass));
+        }
+
+        long knownTotal = 0;
+        int known = 0;
+        for (Unit unit : units) {
+            if (unit.millis >= 0) {
+                knownTotal += unit.millis;
+                known++;
+            }
+        }
+        long unknownMillis = known == 0 ? 1 : Math.max(1, knownTotal / known);
+        for (Unit unit : units) {
+            if (unit.millis < 0)
+                unit.millis = unknownMillis;
+        }
+
+        units.sort(Comparator.comparingLong((Unit unit) -> unit.millis).reversed().thenComparing(unit -> unit.id));
+        long[] load = new long[count];
+        int selected = 0;
+        long total = 0;
+        for (Unit unit : units) {
+            int target = 0;
+            for (int shard = 1; shard < count; shard++) {
+                if (load[shard] < load[target])
+                    target = shard;
+            }
+            load[target] += unit.millis;
+            total += unit.millis;
+            if (target == index - 1)
+                selected++;
+            else
+                unit.test.getXmlClasses().remove(unit.xmlClass);
+        }
+        suite.getTests().removeIf(test -> test.getXmlClasses().isEmpty() && test.getXmlPackages().isEmpty());
+
+        log.info(String.format("Suite '%s', shard %d/%d: %d of %d classes, about %d of %d s",
+                suite.getName(), index, count, selected, units.size(), load[index - 1] / 1000, total / 1000));
+    }
+
+    private static final class Unit {
+        private final XmlTest test;
+        private final XmlClass xmlClass;
+        private final String id;
+        private long millis;
+
+        private Unit(XmlTest test, XmlClass xmlClass) {
+            this.test = test;
+            this.xmlClass = xmlClass;
+            this.id = test.getName() + "/" + xmlClass.getName();
+            this.millis = TestHistory.getClassMillis(xmlClass.getName());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package core.listeners;
+
+import org.testng.IAlterSuiteListener;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ITestContext;
+import org.testng.xml.XmlSuite;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Decides which classes of a suite run and in which order, must be registered in the suite XML listeners <br>
+ * TestNG keeps its listeners in a hash map, so the order of the XML does not say in which order they alter a suite.
+ * All steps are therefore applied here, one after the other: <br>
+ * 1. -Dtestrun=impacted keeps the classes impacted by changes, see {@literal RunModeSelector} <br>
+ * 2. {@literal ShardSelector} splits what is left by -Dshard, so every shard runs its part of the impacted classes <br>
+ * 3. {@literal LongestFirstScheduler} starts the longest {@literal <test>} blocks and classes first <br>
+ * 4. -Dtestrun=failed-first moves failed ones to the front, keeping the longest first order among failed and passed ones
+ */
+public class SuitePlanner implements IAlterSuiteListener, IMethodInterceptor {
+
+    private final Set<String> modes = RunModeSelector.modes();
+
+    @Override
+    public void alter(List<XmlSuite> suites) {
+        for (XmlSuite suite : suites) {
+            if (modes.contains(RunModeSelector.IMPACTED))
+                RunModeSelector.selectImpacted(suite);
+            ShardSelector.select(suite);
+            LongestFirstScheduler.order(suite);
+            if (modes.contains(RunModeSelector.FAILED_FIRST))
+                RunModeSelector.orderFailedFirst(suite);
+        }
+    }
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        List<IMethodInstance> ordered = LongestFirstScheduler.order(methods, context);
+        return modes.contains(RunModeSelector.FAILED_FIRST) ? RunModeSelector.orderFailedFirst(ordered) : ordered;
+    }
+}
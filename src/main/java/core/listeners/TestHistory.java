@@ -0,0 +1,390 @@
+package core.listeners;
+
+import org.apache.logging.log4j.LogManager;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Index of previous runs kept in {@literal test.history} (default .test-history), used to split, order and select tests <br>
+ * durations.properties - {@literal class#method=ms}, all invocations of a method in a run are summed,
+ * stored value moves halfway towards each new run, so one slow run does not reshuffle the shards <br>
+ * results.properties - {@literal class#method=PASSED|FAILED|SKIPPED} of the last run of the method, any failed invocation wins,
+ * a skipped method keeps its earlier outcome <br>
+ * usage.properties - {@literal class=files}, page object sources and data files the test class used <br>
+ * last-green - git commit of the last run without failures and skips <br>
+ * A shard run leaves these files as they are, so all shards split the suite by the same files, and writes only the entries
+ * it recorded to {@literal name.shard-i-of-n.properties}, {@literal ShardMerge} folds them into the history
+ */
+public final class TestHistory {
+
+    private static final org.apache.logging.log4j.Logger log = LogManager.getLogger(TestHistory.class);
+
+    public static final Path HISTORY_DIR = Paths.get(System.getProperty("test.history", ".test-history"));
+    public static final String DURATIONS_FILE = "durations.properties";
+    public static final String RESULTS_FILE = "results.properties";
+    public static final String USAGE_FILE = "usage.properties";
+    public static final String LAST_GREEN_FILE = "last-green";
+    public static final String PASSED = "PASSED";
+    public static final String FAILED = "FAILED";
+    public static final String SKIPPED = "SKIPPED";
+    private static final double WEIGHT_OF_NEW_RUN = 0.5;
+
+    private static final Map<String, LongAdder> CURRENT_DURATIONS = new ConcurrentHashMap<>();
+    private static final Map<String, String> CURRENT_RESULTS = new ConcurrentHashMap<>();
+    private static final Map<String, Set<String>> CURRENT_USAGE = new ConcurrentHashMap<>();
+    private static final ThreadLocal<String> WORKS_FOR = new ThreadLocal<>();
+    private static volatile Map<String, Long> previousDurations;
+    private static volatile Map<String, String> previousResults;
+
+    private TestHistory() {
+    }
+
+    /**
+     * Add duration and outcome of a finished test invocation to the current run
+     *
+     * @param result - finished test
+     */
+    public static void record(ITestResult result) {
+        String key = key(result.getTestClass().getName(), result.getMethod().getMethodName());
+        String status = result.getStatus() == ITestResult.SUCCESS || result.getStatus() == ITestResult.SUCCESS_PERCENTAGE_FAILURE ? PASSED
+                : result.getStatus() == ITestResult.SKIP ? SKIPPED : FAILED;
+        CURRENT_RESULTS.merge(key, status, (previous, current) -> FAILED.equals(previous) || FAILED.equals(current) ? FAILED
+                : PASSED.equals(previous) ? previous : current);
+        long millis = result.getEndMillis() - result.getStartMillis();
+        if (millis >= 0 && !SKIPPED.equals(status))
+            CURRENT_DURATIONS.computeIfAbsent(key, k -> new LongAdder()).add(millis);
+    }
+
+    /**
+     * Remember that the test running on this thread uses a source or data file, e.g. pages/PetStorePage.java or data/pets.jsonl
+     *
+     * @param file - path relative to a source or resource root
+     */
+    public static void recordUsage(String file) {
+        String className = currentTestClass();
+        if (className != null)
+            CURRENT_USAGE.computeIfAbsent(className, k -> ConcurrentHashMap.newKeySet()).add(file);
+    }
+
+    /**
+     * Files used by the calling thread count for a test class, for threads doing the work of a test outside of TestNG,
+     * e.g. load workers, which have no current test result
+     *
+     * @param className - test class, null to stop
+     */
+    public static void recordUsageFor(String className) {
+        if (className == null)
+            WORKS_FOR.remove();
+        else
+            WORKS_FOR.set(className);
+    }
+
+    /**
+     * @return test class running on the calling thread or the one the thread works for, null outside of tests
+     */
+    public static String currentTestClass() {
+        ITestResult result = Reporter.getCurrentTestResult();
+        if (result != null && result.getTestClass() != null)
+            return result.getTestClass().getName();
+        return WORKS_FOR.get();
+    }
+
+    /**
+     * @param className - test class
+     * @return total duration of the class methods in previous runs, -1 if the class never ran
+     */
+    public static long getClassMillis(String className) {
+        String prefix = className + "#";
+        long total = -1;
+        for (Map.Entry<String, Long> entry : durations().entrySet()) {
+            if (entry.getKey().startsWith(prefix))
+                total = Math.max(total, 0) + entry.getValue();
+        }
+        return total;
+    }
+
+    /**
+     * @param className - test class
+     * @return true if a method of the class failed in its last run
+     */
+    public static boolean hasFailed(String className) {
+        String prefix = className + "#";
+        for (Map.Entry<String, String> entry : results().entrySet()) {
+            if (entry.getKey().startsWith(prefix) && FAILED.equals(entry.getValue()))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param className - test class
+     * @return true if a method of the class has a recorded outcome
+     */
+    public static boolean isKnown(String className) {
+        String prefix = className + "#";
+        for (String key : results().keySet()) {
+            if (key.startsWith(prefix))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return files used by each test class in previous runs
+     */
+    public static Map<String, List<String>> usage() {
+        Map<String, List<String>> usage = new HashMap<>();
+        for (Map.Entry<String, String> entry : read(HISTORY_DIR.resolve(USAGE_FILE)).entrySet())
+            usage.put(entry.getKey(), Arrays.asList(entry.getValue().split(",")));
+        return usage;
+    }
+
+    /**
+     * @return method durations of previous runs, {@literal class#method} to ms
+     */
+    public static Map<String, Long> durations() {
+        Map<String, Long> durations = previousDurations;
+        if (durations == null) {
+            synchronized (TestHistory.class) {
+                if (previousDurations == null)
+                    previousDurations = Collections.unmodifiableMap(toDurations(read(HISTORY_DIR.resolve(DURATIONS_FILE))));
+                durations = previousDurations;
+            }
+        }
+        return durations;
+    }
+
+    /**
+     * @return outcomes of previous runs, {@literal class#method} to PASSED, FAILED or SKIPPED
+     */
+    public static Map<String, String> results() {
+        Map<String, String> results = previousResults;
+        if (results == null) {
+            synchronized (TestHistory.class) {
+                if (previousResults == null)
+                    previousResults = Collections.unmodifiableMap(read(HISTORY_DIR.resolve(RESULTS_FILE)));
+                results = previousResults;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @return commit of the last run without failures, null if there was none
+     */
+    public static String getLastGreenCommit() {
+        Path file = HISTORY_DIR.resolve(LAST_GREEN_FILE);
+        try {
+            return Files.isRegularFile(file) ? new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim() : null;
+        } catch (IOException e) {
+            log.warn("Could not read " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Blend the current run into the history files, methods that did not run keep their entries <br>
+     * A shard run writes only the entries of its own methods, blended with the history the same way <br>
+     * A run without failed and skipped tests marks the current git commit green
+     */
+    public static synchronized void save() {
+        if (CURRENT_RESULTS.isEmpty())
+            return;
+        boolean shard = isShard();
+
+        Map<String, String> previousDurations = read(HISTORY_DIR.resolve(DURATIONS_FILE));
+        Map<String, String> durations = new TreeMap<>(shard ? Collections.emptyMap() : previousDurations);
+        for (Map.Entry<String, LongAdder> entry : CURRENT_DURATIONS.entrySet()) {
+            long current = entry.getValue().sum();
+            String previous = previousDurations.get(entry.getKey());
+            durations.put(entry.getKey(), String.valueOf(previous == null ? current
+                    : Math.round(WEIGHT_OF_NEW_RUN * current + (1 - WEIGHT_OF_NEW_RUN) * Long.parseLong(previous))));
+        }
+        write(file(DURATIONS_FILE), durations);
+
+        Map<String, String> previousResults = read(HISTORY_DIR.resolve(RESULTS_FILE));
+        Map<String, String> results = new TreeMap<>(shard ? Collections.emptyMap() : previousResults);
+        for (Map.Entry<String, String> entry : CURRENT_RESULTS.entrySet()) {
+            if (!SKIPPED.equals(entry.getValue()) || !previousResults.containsKey(entry.getKey()))
+                results.put(entry.getKey(), entry.getValue());
+        }
+        write(file(RESULTS_FILE), results);
+
+        Map<String, String> usage = new TreeMap<>(shard ? Collections.emptyMap() : read(HISTORY_DIR.resolve(USAGE_FILE)));
+        for (Map.Entry<String, Set<String>> entry : CURRENT_USAGE.entrySet())
+            usage.put(entry.getKey(), String.join(",", new TreeSet<>(entry.getValue())));
+        write(file(USAGE_FILE), usage);
+
+        boolean green = !CURRENT_RESULTS.containsValue(FAILED) && !CURRENT_RESULTS.containsValue(SKIPPED);
+        String commit = green && !isShard() ? gitHead() : null;
+        if (commit != null) {
+            try {
+                Files.write(HISTORY_DIR.resolve(LAST_GREEN_FILE), commit.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                log.warn("Could not write " + LAST_GREEN_FILE + ": " + e.getMessage());
+            }
+        }
+        CURRENT_DURATIONS.clear();
+        CURRENT_RESULTS.clear();
+        CURRENT_USAGE.clear();
+    }
+
+    /**
+     * @param file - history file
+     * @return key to value, empty if the file does not exist or can not be read
+     */
+    public static Map<String, String> read(Path file) {
+        Map<String, String> values = new HashMap<>();
+        if (!Files.isRegularFile(file))
+            return values;
+        Properties properties = new Properties();
+        try (InputStream stream = Files.newInputStream(file)) {
+            properties.load(stream);
+        } catch (IOException e) {
+            log.warn("Could not read test history " + file + ": " + e.getMessage());
+            return values;
+        }
+        for (String key : properties.stringPropertyNames())
+            values.put(key, properties.getProperty(key).trim());
+        return values;
+    }
+
+    /**
+     * Replace a history file, written to a temporary file first so concurrent readers never see a partial file
+     *
+     * @param file   - history file
+     * @param values - key to value
+     */
+    public static void write(Path file, Map<String, String> values) {
+        Properties properties = new Properties();
+        properties.putAll(values);
+        try {
+            Path dir = file.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            Path temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+            try (OutputStream stream = Files.newOutputStream(temp)) {
+                properties.store(stream, "Test history, see core.listeners.TestHistory");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Could not write test history " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Files changed since the commit, committed or not, paths relative to the working directory
+     *
+     * @param commit - git commit
+     * @return changed and untracked files, null if git is not available or the commit is unknown
+     */
+    public static List<String> changedFilesSince(String commit) {
+        List<String> changed = git("diff", "--name-only", "--relative", commit);
+        List<String> untracked = git("ls-files", "--others", "--exclude-standard");
+        if (changed == null || untracked == null)
+            return null;
+        Set<String> files = new LinkedHashSet<>(changed);
+        files.addAll(untracked);
+        return new ArrayList<>(files);
+    }
+
+    static boolean isShard() {
+        String shard = System.getProperty("shard");
+        return shard != null && !shard.trim().isEmpty();
+    }
+
+    private static Path file(String name) {
+        int[] shard = ShardSelector.currentShard();
+        return HISTORY_DIR.resolve(shard == null ? name : shardFileName(name, shard[0], shard[1]));
+    }
+
+    /**
+     * @param name - history file, e.g. durations.properties
+     * @return file name of the entries recorded by shard i of n, e.g. durations.shard-2-of-4.properties
+     */
+    public static String shardFileName(String name, int index, int count) {
+        return name.substring(0, name.lastIndexOf('.')) + ".shard-" + index + "-of-" + count + ".properties";
+    }
+
+    /**
+     * @param name - history file, e.g. durations.properties
+     * @return pattern matching the file names {@literal shardFileName()} gives to any shard
+     */
+    public static Pattern shardFilePattern(String name) {
+        return Pattern.compile(Pattern.quote(name.substring(0, name.lastIndexOf('.'))) + "\\.shard-\\d+-of-\\d+\\.properties");
+    }
+
+    private static String gitHead() {
+        List<String> head = git("rev-parse", "HEAD");
+        return head == null || head.isEmpty() ? null : head.get(0);
+    }
+
+    private static List<String> git(String... arguments) {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(Arrays.asList(arguments));
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            List<String> lines = new ArrayList<>();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.trim().isEmpty())
+                        lines.add(line.trim());
+                }
+            }
+            if (!process.waitFor(30, TimeUnit.SECONDS) || process.exitValue() != 0) {
+                log.warn("'" + String.join(" ", command) + "' failed: " + String.join(" ", lines));
+                return null;
+            }
+            return lines;
+        } catch (IOException e) {
+            log.warn("Could not run git: " + e.getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private static Map<String, Long> toDurations(Map<String, String> values) {
+        Map<String, Long> durations = new HashMap<>();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            try {
+                durations.put(entry.getKey(), Long.parseLong(entry.getValue()));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring test history entry " + entry.getKey() + "=" + entry.getValue());
+            }
+        }
+        return durations;
+    }
+
+    private static String key(String className, String methodName) {
+        return className + "#" + methodName;
+    }
+}
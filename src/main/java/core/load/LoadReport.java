@@ -0,0 +1,165 @@
+package core.load;
+
+import core.metrics.LatencyHistogram;
+import org.apache.logging.log4j.LogManager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput, latency percentiles and failure counts of one {@literal LoadRunner} run <br>
+ * Logged at the end of the run and written to {@literal load.report} (default target/load-report.txt),
+ * per-step and per-request latencies of the same run are in the step timings report
+ */
+public class LoadReport {
+
+    private static final org.apache.logging.log4j.Logger log = LogManager.getLogger(LoadReport.class);
+
+    public static final Path REPORT_FILE = Paths.get(System.getProperty("load.report", "target/load-report.txt"));
+    private static final int TOP_FAILURES = 10;
+
+    private final String name;
+    private final String model;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Map<String, AtomicLong> failures = new ConcurrentHashMap<>();
+    private long startNanos;
+    private long elapsedNanos;
+
+    LoadReport(String name, String model) {
+        this.name = name;
+        this.model = model;
+    }
+
+    /**
+     * @param startNanos - System.nanoTime() iterations are reported from
+     */
+    void start(long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    void finish() {
+        elapsedNanos = Math.max(0, System.nanoTime() - startNanos);
+    }
+
+    void success(long iterationStart, long nanos) {
+        if (iterationStart >= startNanos)
+            latency.recordNanos(nanos);
+    }
+
+    void failure(long iterationStart, long nanos, Throwable error) {
+        String message = error.getMessage() == null ? "" : error.getMessage().trim();
+        int lineEnd = message.indexOf('\n');
+        failure(iterationStart, nanos, error.getClass().getSimpleName() + ": " + (lineEnd < 0 ? message : message.substring(0, lineEnd)));
+    }
+
+    /**
+     * Iteration of the open model that was still queued when the run ended
+     *
+     * @param intendedStart - System.nanoTime() the iteration should have started at
+     * @param nanos         - time it waited since then
+     */
+    void dropped(long intendedStart, long nanos) {
+        if (intendedStart < startNanos)
+            return;
+        dropped.incrementAndGet();
+        failure(intendedStart, nanos, "Dropped: still queued at the end of the run");
+    }
+
+    private void failure(long iterationStart, long nanos, String key) {
+        if (iterationStart < startNanos)
+            return;
+        latency.recordNanos(nanos);
+        failed.incrementAndGet();
+        failures.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    public long getIterations() {
+        return latency.getCount();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return iterations of the open model never started because workers did not keep up, included in {@literal getFailed()}
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public double getErrorRate() {
+        return getIterations() == 0 ? 0 : (double) getFailed() / getIterations();
+    }
+
+    /**
+     * @return finished iterations per second of wall-clock time, dropped ones are not counted
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : (getIterations() - getDropped()) / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * @param percentile - 0..100
+     * @return iteration latency in milliseconds
+     */
+    public double getPercentileMillis(double percentile) {
+        return latency.getPercentileMicros(percentile) / 1000.0;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "Load '%s' (%s)%n", name, model));
+        report.append(String.format(Locale.ROOT, "%-12s %12d%n", "iterations", getIterations()));
+        report.append(String.format(Locale.ROOT, "%-12s %12d (%.2f%%)%n", "failed", getFailed(), getErrorRate() * 100));
+        if (getDropped() > 0)
+            report.append(String.format(Locale.ROOT, "%-12s %12d%n", "dropped", getDropped()));
+        report.append(String.format(Locale.ROOT, "%-12s %12.1f s%n", "elapsed", elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1)));
+        report.append(String.format(Locale.ROOT, "%-12s %12.1f /s%n", "throughput", getThroughput()));
+        report.append(String.format(Locale.ROOT, "%-12s %12.1f ms%n", "mean", latency.getMeanMicros() / 1000.0));
+        report.append(String.format(Locale.ROOT, "%-12s %12.1f ms%n", "p50", getPercentileMillis(50)));
+        report.append(String.format(Locale.ROOT, "%-12s %12.1f ms%n", "p90", getPercentileMillis(90)));
+        report.append(String.format(Locale.ROOT, "%-12s %12.1f ms%n", "p99", getPercentileMillis(99)));
+        report.append(String.format(Locale.ROOT, "%-12s %12.1f ms%n", "p99.9", getPercentileMillis(99.9)));
+        report.append(String.format(Locale.ROOT, "%-12s %12.1f ms%n", "max", latency.getMaxMicros() / 1000.0));
+
+        List<Map.Entry<String, AtomicLong>> top = new ArrayList<>(failures.entrySet());
+        top.sort((a, b) -> Long.compare(b.getValue().get(), a.getValue().get()));
+        if (!top.isEmpty())
+            report.append(String.format("Failures:%n"));
+        for (Map.Entry<String, AtomicLong> failure : top.subList(0, Math.min(TOP_FAILURES, top.size())))
+            report.append(String.format(Locale.ROOT, "%8d  %s%n", failure.getValue().get(), failure.getKey()));
+        return report.toString();
+    }
+
+    void log() {
+        log.info(toString());
+    }
+
+    void write() {
+        try {
+            if (REPORT_FILE.getParent() != null)
+                Files.createDirectories(REPORT_FILE.getParent());
+            Files.write(REPORT_FILE, toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            log.error("Could not write load report to " + REPORT_FILE + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package core.load;
+
+import core.RestClient;
+import core.TestManager;
+import core.listeners.TestHistory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.ThreadContext;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+
+/**
+ * Runs a scenario, e.g. a chain of page object REST steps, as virtual users for a fixed duration <br>
+ * Open model ({@literal load.rate} > 0): iterations are started at the target rate per second whatever the response times,
+ * latency is measured from the intended start, so time spent queued behind slow iterations is included (no coordinated omission) <br>
+ * Closed model: {@literal load.concurrency} users run iterations back to back, latency is the service time of an iteration <br>
+ * Duration is {@literal load.duration} seconds, open model keeps at most {@literal load.maxUsers} iterations in flight,
+ * iterations started during the first {@literal load.warmup} seconds are run but not reported <br>
+ * Open model iterations still queued {@literal load.drainTimeout} seconds after the end are dropped and reported as failed,
+ * with the time they waited since their intended start as latency <br>
+ * Worker threads get a copy of the test manager, their log output and RestAssured logging are discarded, failures are counted in the report <br>
+ * Sources and data files used by the workers are recorded in {@literal TestHistory} for the test class that started the run
+ */
+public final class LoadRunner {
+
+    private static final org.apache.logging.log4j.Logger log = LogManager.getLogger(LoadRunner.class);
+
+    public static final String THREAD_CONTEXT_KEY = "load";
+    public static final String WORKER = "worker";
+    private static final long DRAIN_TIMEOUT_SEC = Long.getLong("load.drainTimeout", 60L);
+
+    private final String name;
+    private final double rate;
+    private final int concurrency;
+    private final Duration duration;
+    private final Duration warmup;
+
+    /**
+     * @param name        - scenario name for the report
+     * @param rate        - iterations started per second, 0 for closed model
+     * @param concurrency - virtual users of closed model, iterations in flight of open model
+     * @param duration    - time new iterations are started and reported
+     * @param warmup      - time iterations are started before the reported duration
+     */
+    public LoadRunner(String name, double rate, int concurrency, Duration duration, Duration warmup) {
+        if (concurrency < 1)
+            throw new IllegalArgumentException("Concurrency must be positive: " + concurrency);
+        this.name = name;
+        this.rate = rate;
+        this.concurrency = concurrency;
+        this.duration = duration;
+        this.warmup = warmup;
+    }
+
+    /**
+     * Runner configured by {@literal load.rate}, {@literal load.concurrency} (closed model users, default 8),
+     * {@literal load.maxUsers} (open model limit, default 64), {@literal load.duration} (seconds, default 30) and {@literal load.warmup} (seconds, default 0)
+     *
+     * @param name - scenario name for the report
+     * @return runner
+     */
+    public static LoadRunner fromSystemProperties(String name) {
+        double rate = Double.parseDouble(System.getProperty("load.rate", "0"));
+        int concurrency = rate > 0 ? Integer.getInteger("load.maxUsers", 64) : Integer.getInteger("load.concurrency", 8);
+        return new LoadRunner(name, rate, concurrency,
+                Duration.ofSeconds(Long.getLong("load.duration", 30L)), Duration.ofSeconds(Long.getLong("load.warmup", 0L)));
+    }
+
+    /**
+     * Run the scenario and block until every started iteration finished
+     *
+     * @param iteration - one virtual user iteration, gets a unique sequence number, fails by throwing
+     * @return throughput and latency report
+     */
+    public LoadReport run(LongConsumer iteration) {
+        boolean open = rate > 0;
+        String model = open ? String.format(Locale.ROOT, "open, %.1f/s, up to %d in flight", rate, concurrency)
+                : "closed, " + concurrency + " users";
+        log.info("Load '" + name + "' started: " + model + ", " + duration.getSeconds() + " s" + (warmup.isZero() ? "" : " after " + warmup.getSeconds() + " s warmup"));
+
+        LoadReport report = new LoadReport(name, model);
+        List<TestManager> managers = new CopyOnWriteArrayList<>();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new WorkerThreadFactory(TestManager.findActualInstance(), TestHistory.currentTestClass(), managers));
+        executor.prestartAllCoreThreads();
+
+        long start = System.nanoTime();
+        long end = start + warmup.toNanos() + duration.toNanos();
+        report.start(start + warmup.toNanos());
+        try {
+            if (open)
+                dispatchOpen(executor, iteration, report, start, end);
+            else
+                dispatchClosed(executor, iteration, report, end);
+            executor.shutdown();
+            if (!executor.awaitTermination(DRAIN_TIMEOUT_SEC, TimeUnit.SECONDS))
+                log.warn("Load '" + name + "': iterations still running " + DRAIN_TIMEOUT_SEC + " s after the end, they are interrupted");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            dropQueued(executor.shutdownNow(), report);
+            report.finish();
+            for (TestManager manager : managers)
+                manager.quit();
+        }
+        report.log();
+        report.write();
+        return report;
+    }
+
+    private void dispatchOpen(ExecutorService executor, LongConsumer iteration, LoadReport report, long start, long end) {
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        for (long sequence = 0; ; sequence++) {
+            long intended = start + (long) (sequence * intervalNanos);
+            if (intended >= end)
+                return;
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0)
+                LockSupport.parkNanos(wait);
+            executor.execute(new Scheduled(iteration, sequence, intended, report));
+        }
+    }
+
+    /**
+     * Iterations the workers never started, the system could not keep up with the rate, each counts as failed
+     */
+    private void dropQueued(List<Runnable> queued, LoadReport report) {
+        long now = System.nanoTime();
+        int dropped = 0;
+        for (Runnable task : queued) {
+            if (task instanceof Scheduled) {
+                report.dropped(((Scheduled) task).intended, now - ((Scheduled) task).intended);
+                dropped++;
+            }
+        }
+        if (dropped > 0)
+            log.warn("Load '" + name + "': " + dropped + " iteration(s) were still queued at the end, they are reported as failed");
+    }
+
+    private void dispatchClosed(ExecutorService executor, LongConsumer iteration, LoadReport report, long end) {
+        AtomicLong sequence = new AtomicLong();
+        for (int user = 0; user < concurrency; user++) {
+            executor.execute(() -> {
+                while (System.nanoTime() < end)
+                    execute(iteration, sequence.getAndIncrement(), System.nanoTime(), report);
+            });
+        }
+    }
+
+    private static void execute(LongConsumer iteration, long number, long startNanos, LoadReport report) {
+        try {
+            iteration.accept(number);
+            report.success(startNanos, System.nanoTime() - startNanos);
+        } catch (AssertionError | Exception e) {
+            // RestAssured rethrows checked IO exceptions undeclared
+            report.failure(startNanos, System.nanoTime() - startNanos, e);
+        }
+    }
+
+    /**
+     * Open model iteration with its intended start, kept so that an iteration dropped from the queue can still be reported
+     */
+    private static final class Scheduled implements Runnable {
+        private final LongConsumer iteration;
+        private final long number;
+        private final long intended;
+        private final LoadReport report;
+
+        private Scheduled(LongConsumer iteration, long number, long intended, LoadReport report) {
+            this.iteration = iteration;
+            this.number = number;
+            this.intended = intended;
+            this.report = report;
+        }
+
+        @Override
+        public void run() {
+            execute(iteration, number, intended, report);
+        }
+    }
+
+    /**
+     * Workers do not inherit thread locals of the test thread (TestNG result, Allure step context),
+     * each gets its own test manager and muted logging
+     */
+    private static final class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+        private final TestManager template;
+        private final String testClass;
+        private final List<TestManager> managers;
+
+        private WorkerThreadFactory(TestManager template, String testClass, List<TestManager> managers) {
+            this.template = template;
+            this.testClass = testClass;
+            this.managers = managers;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Runnable worker = () -> {
+                ThreadContext.put(THREAD_CONTEXT_KEY, WORKER);
+                RestClient.muteLogging();
+                // page objects built by iterations are recorded as used by the load test, see -Dtestrun=impacted
+                TestHistory.recordUsageFor(testClass);
+                if (template != null)
+                    managers.add(template.forkForCurrentThread());
+                runnable.run();
+            };
+            Thread thread = new Thread(null, worker, "load-user-" + counter.incrementAndGet(), 0, false);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
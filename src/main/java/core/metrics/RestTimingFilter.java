@@ -0,0 +1,44 @@
+package core.metrics;
+
+import core.jfr.FlightRecording;
+import core.jfr.RestCallEvent;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+import java.util.regex.Pattern;
+
+/**
+ * RestAssured filter timing every request, numeric path segments are folded into {id} so all pets share one histogram <br>
+ * Each request is also a {@literal RestCallEvent} of a running JFR recording, see {@literal FlightRecording}
+ */
+public class RestTimingFilter implements Filter {
+
+    private static final Pattern NUMERIC_SEGMENT = Pattern.compile("/\\d+(?=/|$)");
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+        RestCallEvent event = new RestCallEvent();
+        event.begin();
+        long start = System.nanoTime();
+        Response response = null;
+        try {
+            response = ctx.next(requestSpec, responseSpec);
+            return response;
+        } finally {
+            String path = NUMERIC_SEGMENT.matcher(requestSpec.getUserDefinedPath()).replaceAll("/{id}");
+            StepTimings.record("rest " + requestSpec.getMethod() + " " + path, System.nanoTime() - start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.method = requestSpec.getMethod();
+                event.path = path;
+                event.uri = requestSpec.getURI();
+                event.status = response == null ? 0 : response.getStatusCode();
+                event.test = FlightRecording.currentTest();
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package core.metrics;
+
+import core.jfr.FlightRecording;
+import core.jfr.StepEvent;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+/**
+ * Times every method annotated with Allure @Step, woven at load time by the aspectjweaver agent of surefire <br>
+ * Each step is also a {@literal StepEvent} of a running JFR recording, see {@literal FlightRecording}
+ */
+@Aspect
+public class StepTimingAspect {
+
+    @Around("execution(@io.qameta.allure.Step * *(..))")
+    public Object timeStep(ProceedingJoinPoint joinPoint) throws Throwable {
+        StepEvent event = new StepEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            String step = "step " + joinPoint.getSignature().getDeclaringType().getSimpleName() + "." + joinPoint.getSignature().getName();
+            StepTimings.record(step, System.nanoTime() - start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.step = step;
+                event.test = FlightRecording.currentTest();
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package core.metrics;
+
+import org.apache.logging.log4j.LogManager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wall-clock timings of @Step methods and REST calls, one histogram per step or request name <br>
+ * Fed by {@literal StepTimingAspect} and {@literal RestTimingFilter}, summary is written at suite end to {@literal timings.report}
+ */
+public final class StepTimings {
+
+    private static final org.apache.logging.log4j.Logger log = LogManager.getLogger(StepTimings.class);
+
+    public static final Path REPORT_FILE = Paths.get(System.getProperty("timings.report", "target/step-timings.txt"));
+
+    private static final Map<String, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+
+    private StepTimings() {
+    }
+
+    public static void record(String name, long nanos) {
+        LatencyHistogram histogram = HISTOGRAMS.get(name);
+        if (histogram == null)
+            histogram = HISTOGRAMS.computeIfAbsent(name, key -> new LatencyHistogram());
+        histogram.recordNanos(nanos);
+    }
+
+    public static LatencyHistogram get(String name) {
+        return HISTOGRAMS.get(name);
+    }
+
+    /**
+     * Summary table sorted by total time spent, slowest steps first
+     *
+     * @return p50/p95/p99 per step in milliseconds
+     */
+    public static String summary() {
+        List<Map.Entry<String, LatencyHistogram>> entries = new ArrayList<>(HISTOGRAMS.entrySet());
+        entries.sort((a, b) -> Double.compare(total(b.getValue()), total(a.getValue())));
+
+        StringBuilder summary = new StringBuilder();
+        summary.append(String.format(Locale.ROOT, "%-70s %8s %10s %10s %10s %10s %10s%n", "step", "count", "total ms", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        for (Map.Entry<String, LatencyHistogram> entry : entries) {
+            LatencyHistogram histogram = entry.getValue();
+            summary.append(String.format(Locale.ROOT, "%-70s %8d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    entry.getKey(),
+                    histogram.getCount(),
+                    total(histogram) / 1000,
+                    histogram.getPercentileMicros(50) / 1000.0,
+                    histogram.getPercentileMicros(95) / 1000.0,
+                    histogram.getPercentileMicros(99) / 1000.0,
+                    histogram.getMaxMicros() / 1000.0));
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Write the summary to {@literal REPORT_FILE} and the log, does nothing if no step was timed
+     */
+    public static void writeReport() {
+        if (HISTOGRAMS.isEmpty())
+            return;
+        String summary = summary();
+        log.info("Step timings:\n" + summary);
+        try {
+            if (REPORT_FILE.getParent() != null)
+                Files.createDirectories(REPORT_FILE.getParent());
+            Files.write(REPORT_FILE, summary.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            log.error("Could not write step timings to " + REPORT_FILE + ": " + e.getMessage());
+        }
+    }
+
+    private static double total(LatencyHistogram histogram) {
+        return histogram.getMeanMicros() * histogram.getCount();
+    }
+}
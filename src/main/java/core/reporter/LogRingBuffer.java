@@ -0,0 +1,72 @@
+package core.reporter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free ring buffer for many producers and a single consumer <br>
+ * Producers claim a slot with one CAS and never block, {@literal offer()} fails instead when the buffer is full
+ *
+ * @param <E> - element type
+ */
+final class LogRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    /**
+     * @param capacity - rounded up to a power of two
+     */
+    LogRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    boolean offer(E element) {
+        long claimed;
+        do {
+            claimed = tail.get();
+            if (claimed - head > mask)
+                return false;
+        } while (!tail.compareAndSet(claimed, claimed + 1));
+        slots.lazySet((int) claimed & mask, element);
+        return true;
+    }
+
+    /**
+     * Consumer side only
+     *
+     * @return next element or null if the buffer is empty or the next slot is not published yet
+     */
+    E poll() {
+        long current = head;
+        int index = (int) current & mask;
+        E element = slots.get(index);
+        if (element == null)
+            return null;
+        slots.lazySet(index, null);
+        head = current + 1;
+        return element;
+    }
+
+    boolean isEmpty() {
+        return tail.get() == head;
+    }
+
+    /**
+     * @return sequence of the next slot to be claimed, every element offered so far has a lower one
+     */
+    long claimed() {
+        return tail.get();
+    }
+
+    /**
+     * @return true once the consumer has taken every element below the sequence
+     */
+    boolean isConsumed(long sequence) {
+        return head >= sequence;
+    }
+}
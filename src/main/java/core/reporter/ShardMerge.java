@@ -0,0 +1,229 @@
+package core.reporter;
+
+import core.listeners.TestHistory;
+import org.apache.logging.log4j.LogManager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Merges results of a suite run in shards (-Dshard=i/n) into one report: mvn verify -Pmerge-shards -Dshards.dir={dir} <br>
+ * Every subdirectory of the shards dir holds what one shard produced: allure-results, surefire-reports (or target/surefire-reports)
+ * and .test-history <br>
+ * Allure results are copied into one allure-results dir, ReportNG pages of every shard are kept as they are under html/{shard}
+ * and linked from an index with totals <br>
+ * Durations, results and usage each shard recorded ({@literal name.shard-i-of-n.properties}, only the methods the shard ran)
+ * are merged into the local test history for the next run, other history files of a shard are ignored
+ */
+public final class ShardMerge {
+
+    private static final org.apache.logging.log4j.Logger log = LogManager.getLogger(ShardMerge.class);
+
+    private static final Pattern ATTRIBUTE = Pattern.compile("(\\w+)=\"(\\d+)\"");
+
+    private ShardMerge() {
+    }
+
+    /**
+     * @param args - shards dir, output dir (default target/merged)
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1)
+            throw new IllegalArgumentException("Usage: ShardMerge <shards dir> [output dir]");
+        Path shardsDir = Paths.get(args[0]);
+        Path outputDir = Paths.get(args.length > 1 ? args[1] : "target/merged");
+        merge(shardsDir, outputDir);
+    }
+
+    public static void merge(Path shardsDir, Path outputDir) throws IOException {
+        merge(shardsDir, outputDir, TestHistory.HISTORY_DIR);
+    }
+
+    /**
+     * @param historyDir - test history the shard histories are merged into
+     */
+    public static void merge(Path shardsDir, Path outputDir, Path historyDir) throws IOException {
+        List<Path> shards;
+        try (Stream<Path> children = Files.list(shardsDir)) {
+            shards = children.filter(Files::isDirectory).sorted().collect(Collectors.toList());
+        }
+        if (shards.isEmpty())
+            throw new IllegalArgumentException("No shard directories in " + shardsDir.toAbsolutePath());
+
+        Path allureOutput = outputDir.resolve("allure-results");
+        Path htmlOutput = outputDir.resolve("html");
+        Files.createDirectories(allureOutput);
+        Files.createDirectories(htmlOutput);
+        Map<String, Map<String, String>> recorded = new LinkedHashMap<>();
+        for (String file : Arrays.asList(TestHistory.DURATIONS_FILE, TestHistory.RESULTS_FILE, TestHistory.USAGE_FILE))
+            recorded.put(file, new TreeMap<>());
+        List<String[]> rows = new ArrayList<>();
+        long[] totals = new long[4];
+
+        for (Path shard : shards) {
+            String name = shard.getFileName().toString();
+            int copied = copyFlat(shard.resolve("allure-results"), allureOutput);
+
+            Path surefire = Files.isDirectory(shard.resolve("surefire-reports")) ? shard.resolve("surefire-reports") : shard.resolve("target/surefire-reports");
+            copyTree(surefire.resolve("html"), htmlOutput.resolve(name));
+            long[] counts = readTotals(surefire.resolve("testng-results.xml"));
+            for (int i = 0; i < totals.length; i++)
+                totals[i] += counts[i];
+            rows.add(new String[]{name, String.valueOf(counts[0]), String.valueOf(counts[1]), String.valueOf(counts[2]), String.valueOf(counts[3])});
+
+            collectHistory(shard.resolve(".test-history"), recorded);
+            log.info("Merged shard '" + name + "': " + copied + " Allure files, " + counts[0] + " tests");
+        }
+
+        writeIndex(htmlOutput.resolve("index.html"), rows, totals);
+        // entries of the shards replace those of earlier runs, like a run without shards does
+        for (Map.Entry<String, Map<String, String>> entry : recorded.entrySet()) {
+            Map<String, String> history = new TreeMap<>(TestHistory.read(historyDir.resolve(entry.getKey())));
+            history.putAll(entry.getValue());
+            TestHistory.write(historyDir.resolve(entry.getKey()), history);
+        }
+        log.info("Merged " + shards.size() + " shards into " + outputDir.toAbsolutePath() + ": " + totals[0] + " tests, " + totals[2] + " failed, "
+                + "run 'allure serve " + allureOutput + "' for the Allure report");
+    }
+
+    /**
+     * Add the entries one shard recorded, files are read in name order so the merge does not depend on the file system
+     */
+    private static void collectHistory(Path shardHistory, Map<String, Map<String, String>> recorded) throws IOException {
+        if (!Files.isDirectory(shardHistory))
+            return;
+        List<Path> files;
+        try (Stream<Path> children = Files.list(shardHistory)) {
+            files = children.sorted().collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            String fileName = file.getFileName().toString();
+            for (Map.Entry<String, Map<String, String>> entry : recorded.entrySet()) {
+                if (!TestHistory.shardFilePattern(entry.getKey()).matcher(fileName).matches())
+                    continue;
+                for (Map.Entry<String, String> value : TestHistory.read(file).entrySet())
+                    entry.getValue().merge(value.getKey(), value.getValue(), (previous, current) -> merge(entry.getKey(), previous, current));
+            }
+        }
+    }
+
+    /**
+     * Shards run different classes, a method recorded by two shards anyway (e.g. a shard dir copied twice) keeps a failure over
+     * a pass and a pass over a skip, used files of a class are joined, the later duration wins
+     */
+    private static String merge(String file, String previous, String current) {
+        if (TestHistory.RESULTS_FILE.equals(file)) {
+            if (TestHistory.FAILED.equals(previous) || TestHistory.FAILED.equals(current))
+                return TestHistory.FAILED;
+            return TestHistory.SKIPPED.equals(current) ? previous : current;
+        }
+        if (TestHistory.USAGE_FILE.equals(file)) {
+            Set<String> files = new TreeSet<>(Arrays.asList(previous.split(",")));
+            files.addAll(Arrays.asList(current.split(",")));
+            return String.join(",", files);
+        }
+        return current;
+    }
+
+    /**
+     * Allure result files have unique names, files shared by all shards (environment, categories) are taken from the first shard
+     */
+    private static int copyFlat(Path source, Path target) throws IOException {
+        if (!Files.isDirectory(source))
+            return 0;
+        int copied = 0;
+        try (Stream<Path> files = Files.list(source)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                try {
+                    Files.copy(file, target.resolve(file.getFileName().toString()));
+                    copied++;
+                } catch (FileAlreadyExistsException e) {
+                    log.debug("Keeping " + file.getFileName() + " of an earlier shard");
+                }
+            }
+        }
+        return copied;
+    }
+
+    private static void copyTree(Path source, Path target) throws IOException {
+        if (!Files.isDirectory(source))
+            return;
+        try (Stream<Path> files = Files.walk(source)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Path destination = target.resolve(source.relativize(file).toString());
+                if (Files.isDirectory(file))
+                    Files.createDirectories(destination);
+                else
+                    Files.copy(file, destination, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    /**
+     * @return total, passed, failed, skipped from the root element of testng-results.xml
+     */
+    private static long[] readTotals(Path testngResults) throws IOException {
+        long[] counts = new long[4];
+        if (!Files.isRegularFile(testngResults))
+            return counts;
+        String content = new String(Files.readAllBytes(testngResults), StandardCharsets.UTF_8);
+        int start = content.indexOf("<testng-results");
+        if (start < 0)
+            return counts;
+        Matcher attributes = ATTRIBUTE.matcher(content.substring(start, content.indexOf('>', start)));
+        while (attributes.find()) {
+            long value = Long.parseLong(attributes.group(2));
+            switch (attributes.group(1)) {
+                case "total":
+                    counts[0] = value;
+                    break;
+                case "passed":
+                    counts[1] = value;
+                    break;
+                case "failed":
+                    counts[2] = value;
+                    break;
+                case "skipped":
+                    counts[3] = value;
+                    break;
+                default:
+            }
+        }
+        return counts;
+    }
+
+    private static void writeIndex(Path index, List<String[]> rows, long[] totals) throws IOException {
+        StringBuilder html = new StringBuilder();
+        html.append("<!DOCTYPE html>\n<html>\n<head><meta charset=\"UTF-8\"><title>Test results by shard</title></head>\n<body>\n");
+        html.append("<h1>Test results by shard</h1>\n<table border=\"1\" cellpadding=\"4\">\n");
+        html.append("<tr><th>Shard</th><th>Total</th><th>Passed</th><th>Failed</th><th>Skipped</th></tr>\n");
+        for (String[] row : rows) {
+            html.append("<tr><td><a href=\"").append(row[0]).append("/index.html\">").append(row[0]).append("</a></td>");
+            for (int i = 1; i < row.length; i++)
+                html.append("<td>").append(row[i]).append("</td>");
+            html.append("</tr>\n");
+        }
+        html.append("<tr><th>All</th>");
+        for (long total : totals)
+            html.append("<th>").append(total).append("</th>");
+        html.append("</tr>\n</table>\n</body>\n</html>\n");
+        Files.write(index, html.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
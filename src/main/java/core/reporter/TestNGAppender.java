@@ -0,0 +1,148 @@
+package core.reporter;
+
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.Core;
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.Layout;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.Property;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginAttribute;
+import org.apache.logging.log4j.core.config.plugins.PluginElement;
+import org.apache.logging.log4j.core.config.plugins.PluginFactory;
+import org.apache.logging.log4j.core.impl.LocationAware;
+import org.apache.logging.log4j.core.layout.PatternLayout;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+
+import java.io.Serializable;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Log4j appender writing log lines to the TestNG report output of the test that logged them <br>
+ * Test threads only capture the event and its ITestResult into a lock-free ring buffer,
+ * formatting and Reporter.log() are done in batches by a background thread <br>
+ * When the buffer is full lines are dropped rather than blocking the test, the number of dropped lines is reported on stop
+ */
+@Plugin(name = "TestNGAppender", category = Core.CATEGORY_NAME, elementType = Appender.ELEMENT_TYPE, printObject = true)
+public final class TestNGAppender extends AbstractAppender {
+
+    private static final Set<TestNGAppender> RUNNING = ConcurrentHashMap.newKeySet();
+    private static final int BATCH_SIZE = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final LogRingBuffer<Entry> buffer;
+    private final boolean requiresLocation;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile Thread consumer;
+    private volatile boolean stopping;
+
+    private static final class Entry {
+        private final ITestResult testResult;
+        private final LogEvent event;
+
+        private Entry(ITestResult testResult, LogEvent event) {
+            this.testResult = testResult;
+            this.event = event;
+        }
+    }
+
+    private TestNGAppender(String name, Filter filter, Layout<? extends Serializable> layout, int bufferSize) {
+        super(name, filter, layout, true, Property.EMPTY_ARRAY);
+        buffer = new LogRingBuffer<>(bufferSize);
+        requiresLocation = layout instanceof LocationAware && ((LocationAware) layout).requiresLocation();
+    }
+
+    @PluginFactory
+    public static TestNGAppender createAppender(@PluginAttribute("name") String name,
+                                                @PluginAttribute(value = "bufferSize", defaultInt = 8192) int bufferSize,
+                                                @PluginElement("Layout") Layout<? extends Serializable> layout,
+                                                @PluginElement("Filter") Filter filter) {
+        if (layout == null)
+            layout = PatternLayout.createDefaultLayout();
+        return new TestNGAppender(name, filter, layout, bufferSize);
+    }
+
+    @Override
+    public void append(LogEvent event) {
+        if (requiresLocation)
+            event.getSource();
+        if (!buffer.offer(new Entry(Reporter.getCurrentTestResult(), event.toImmutable())))
+            dropped.incrementAndGet();
+    }
+
+    @Override
+    public void start() {
+        super.start();
+        stopping = false;
+        Thread thread = new Thread(this::drainLoop, "testng-appender-" + getName());
+        thread.setDaemon(true);
+        consumer = thread;
+        RUNNING.add(this);
+        thread.start();
+    }
+
+    @Override
+    public boolean stop(long timeout, TimeUnit timeUnit) {
+        setStopping();
+        boolean stopped = super.stop(timeout, timeUnit, false);
+        RUNNING.remove(this);
+        stopping = true;
+        Thread thread = consumer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(timeUnit.toMillis(timeout) > 0 ? timeUnit.toMillis(timeout) : 0);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        drain(Integer.MAX_VALUE);
+        if (dropped.get() > 0)
+            LOGGER.warn("TestNGAppender '" + getName() + "' dropped " + dropped.get() + " log line(s), increase bufferSize");
+        setStopped();
+        return stopped;
+    }
+
+    /**
+     * Wait until lines logged so far by all running appenders are in the TestNG output, called before reports are generated
+     * and before a listener reads {@literal Reporter.getOutput()} of a test <br>
+     * Lines logged by other threads meanwhile are not waited for
+     */
+    public static void flushAll() {
+        for (TestNGAppender appender : RUNNING) {
+            long logged = appender.buffer.claimed();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!appender.buffer.isConsumed(logged) && System.nanoTime() < deadline)
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            // the last batch taken from the buffer may still be written
+            synchronized (appender) {
+            }
+        }
+    }
+
+    private void drainLoop() {
+        while (!stopping) {
+            if (drain(BATCH_SIZE) == 0)
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+    }
+
+    private synchronized int drain(int limit) {
+        int count = 0;
+        Entry entry;
+        while (count < limit && (entry = buffer.poll()) != null) {
+            Reporter.setCurrentTestResult(entry.testResult);
+            Reporter.log(getLayout().toSerializable(entry.event).toString());
+            count++;
+        }
+        if (count > 0)
+            Reporter.setCurrentTestResult(null);
+        return count;
+    }
+}
@@ -0,0 +1,47 @@
+package core.reporter;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.pattern.ConverterKeys;
+import org.apache.logging.log4j.core.pattern.LogEventPatternConverter;
+import org.apache.logging.log4j.core.pattern.PatternConverter;
+
+/**
+ * %testnglevel - log level colored with HTML for the ReportNG output
+ */
+@Plugin(name = "TestNGLevelConverter", category = PatternConverter.CATEGORY)
+@ConverterKeys({"testnglevel"})
+public final class TestNGLevelConverter extends LogEventPatternConverter {
+
+    private static final TestNGLevelConverter INSTANCE = new TestNGLevelConverter();
+
+    private TestNGLevelConverter() {
+        super("TestNGLevel", "testnglevel");
+    }
+
+    public static TestNGLevelConverter newInstance(String[] options) {
+        return INSTANCE;
+    }
+
+    @Override
+    public void format(LogEvent event, StringBuilder toAppendTo) {
+        Level level = event.getLevel();
+        toAppendTo.append("<span style=\"color:").append(color(level)).append("\">").append(level.name()).append("</span>");
+    }
+
+    private static String color(Level level) {
+        switch (level.name()) {
+            case "FATAL":
+            case "ERROR":
+            case "TESTFAILED":
+                return "red";
+            case "WARN":
+                return "orange";
+            case "TESTPASSED":
+                return "green";
+            default:
+                return "black";
+        }
+    }
+}
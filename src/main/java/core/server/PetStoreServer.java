@@ -0,0 +1,383 @@
+package core.server;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory stand-in for the /v2/pet endpoints of https://petstore.swagger.io, runs in the test JVM on a random local port <br>
+ * Pets are kept in a concurrent map as the JSON they were posted with, responses mirror the public server
+ * (status codes and {@literal {"code","type","message"}} bodies) <br>
+ * "/" serves the Swagger UI page for the local swagger.json, UI assets come from the swagger-ui webjar on the classpath,
+ * so UI tests need no network either <br>
+ * A DELETE with an {@literal api_key} header other than {@literal stub.apiKey} (default special-key, the key of the public sample)
+ * is refused with 403, a DELETE without the header is allowed as the header is optional <br>
+ * Started with -Dtest.url=local, {@literal stub.latency} adds artificial latency in ms to every API response
+ */
+public final class PetStoreServer {
+
+    private static final org.apache.logging.log4j.Logger log = LogManager.getLogger(PetStoreServer.class);
+
+    public static final String LOCAL = "local";
+    private static final long LATENCY_MS = Long.getLong("stub.latency", 0L);
+    private static final int THREADS = Integer.getInteger("stub.threads", 16);
+    private static final String API_KEY = System.getProperty("stub.apiKey", "special-key");
+    private static final String API_ROOT = "/v2";
+    private static final String PET_PATH = API_ROOT + "/pet";
+    private static final List<String> STATUSES = Arrays.asList("available", "pending", "sold");
+    private static final String SWAGGER_UI_PATH = "/swagger-ui/";
+    private static final String SWAGGER_UI_RESOURCES = "META-INF/resources/webjars/swagger-ui/" + webjarVersion("swagger-ui") + "/";
+
+    private static PetStoreServer shared;
+
+    private final Gson gson = new GsonBuilder().serializeNulls().create();
+    private final ConcurrentMap<Long, JsonObject> pets = new ConcurrentHashMap<>();
+    private final long latencyMs;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Bind a server on a free port of the loopback interface, call {@literal start()} to serve requests
+     *
+     * @param latencyMs - delay added to every API response
+     * @throws IOException if the port can not be bound
+     */
+    public PetStoreServer(long latencyMs) throws IOException {
+        this.latencyMs = latencyMs;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        executor = Executors.newFixedThreadPool(THREADS, new ServerThreadFactory());
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    /**
+     * Server shared by all tests of the JVM, started on first call
+     *
+     * @return running server
+     */
+    public static synchronized PetStoreServer startShared() {
+        if (shared == null) {
+            try {
+                shared = new PetStoreServer(LATENCY_MS);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not start local Pet Store", e);
+            }
+            shared.start();
+        }
+        return shared;
+    }
+
+    /**
+     * Stop the shared server if it was started
+     */
+    public static synchronized void stopShared() {
+        if (shared != null) {
+            shared.stop();
+            shared = null;
+        }
+    }
+
+    public void start() {
+        server.start();
+        log.info("Local Pet Store started on " + getUrl() + (latencyMs > 0 ? " with " + latencyMs + " ms latency" : ""));
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+        log.info("Local Pet Store stopped, " + pets.size() + " pet(s) were left in store");
+    }
+
+    /**
+     * @return site root, e.g. http://127.0.0.1:54321, the API is under {@literal /v2}
+     */
+    public String getUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if ("/".equals(path) || "/index.html".equals(path)) {
+                sendResource(exchange, "petstore/index.html", "text/html");
+            } else if (path.startsWith(SWAGGER_UI_PATH)) {
+                sendSwaggerUi(exchange, path.substring(SWAGGER_UI_PATH.length()));
+            } else if ((API_ROOT + "/swagger.json").equals(path)) {
+                sendSwagger(exchange);
+            } else if (path.startsWith(PET_PATH)) {
+                pause();
+                handlePet(exchange, method, path.substring(PET_PATH.length()));
+            } else {
+                sendMessage(exchange, 404, "unknown", "Not found");
+            }
+        } catch (RuntimeException e) {
+            log.error("Local Pet Store failed on " + exchange.getRequestMethod() + " " + exchange.getRequestURI(), e);
+            sendMessage(exchange, 500, "unknown", "something bad happened");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handlePet(HttpExchange exchange, String method, String subPath) throws IOException {
+        if (subPath.isEmpty() || "/".equals(subPath)) {
+            if ("POST".equals(method))
+                addPet(exchange, false);
+            else if ("PUT".equals(method))
+                addPet(exchange, true);
+            else
+                sendMessage(exchange, 405, "unknown", "Method not allowed");
+            return;
+        }
+        if ("/findByStatus".equals(subPath) && "GET".equals(method)) {
+            findByStatus(exchange);
+            return;
+        }
+
+        String idValue = subPath.substring(1);
+        long id;
+        try {
+            id = Long.parseLong(idValue);
+        } catch (NumberFormatException e) {
+            sendMessage(exchange, 404, "unknown", "java.lang.NumberFormatException: For input string: \"" + idValue + "\"");
+            return;
+        }
+        switch (method) {
+            case "GET":
+                JsonObject pet = pets.get(id);
+                if (pet == null)
+                    sendMessage(exchange, 404, "error", "Pet not found");
+                else
+                    send(exchange, 200, pet);
+                break;
+            case "POST":
+                updateWithForm(exchange, id);
+                break;
+            case "DELETE":
+                String apiKey = exchange.getRequestHeaders().getFirst("api_key");
+                if (apiKey != null && !API_KEY.equals(apiKey))
+                    sendMessage(exchange, 403, "unknown", "Invalid api_key");
+                else if (pets.remove(id) == null)
+                    send(exchange, 404, null);
+                else
+                    sendMessage(exchange, 200, "unknown", String.valueOf(id));
+                break;
+            default:
+                sendMessage(exchange, 405, "unknown", "Method not allowed");
+        }
+    }
+
+    private void addPet(HttpExchange exchange, boolean update) throws IOException {
+        JsonObject pet;
+        try {
+            JsonElement body = JsonParser.parseString(new String(readBody(exchange), StandardCharsets.UTF_8));
+            pet = body.isJsonObject() ? body.getAsJsonObject() : null;
+        } catch (JsonParseException e) {
+            pet = null;
+        }
+        if (pet == null) {
+            sendMessage(exchange, 405, "unknown", "Invalid input");
+            return;
+        }
+        long id = pet.has("id") && !pet.get("id").isJsonNull() ? pet.get("id").getAsLong() : 0;
+        if (id == 0) {
+            id = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+            pet.addProperty("id", id);
+        }
+        if (update && !pets.containsKey(id)) {
+            sendMessage(exchange, 404, "unknown", "Pet not found");
+            return;
+        }
+        if (!pet.has("photoUrls"))
+            pet.add("photoUrls", new JsonArray());
+        if (!pet.has("tags"))
+            pet.add("tags", new JsonArray());
+        pets.put(id, pet);
+        send(exchange, 200, pet);
+    }
+
+    private void updateWithForm(HttpExchange exchange, long id) throws IOException {
+        Map<String, String> form = parseForm(new String(readBody(exchange), StandardCharsets.UTF_8));
+        JsonObject updated = pets.computeIfPresent(id, (key, pet) -> {
+            JsonObject copy = pet.deepCopy();
+            if (form.containsKey("name"))
+                copy.addProperty("name", form.get("name"));
+            if (form.containsKey("status"))
+                copy.addProperty("status", form.get("status"));
+            return copy;
+        });
+        if (updated == null)
+            sendMessage(exchange, 404, "unknown", "not found");
+        else
+            sendMessage(exchange, 200, "unknown", String.valueOf(id));
+    }
+
+    private void findByStatus(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseForm(exchange.getRequestURI().getRawQuery());
+        String status = query.getOrDefault("status", "available");
+        if (!STATUSES.contains(status)) {
+            sendMessage(exchange, 400, "unknown", "Invalid status value");
+            return;
+        }
+        JsonArray found = new JsonArray();
+        for (JsonObject pet : pets.values()) {
+            JsonElement petStatus = pet.get("status");
+            if (petStatus != null && !petStatus.isJsonNull() && status.equals(petStatus.getAsString()))
+                found.add(pet);
+        }
+        send(exchange, 200, found);
+    }
+
+    private void sendSwagger(HttpExchange exchange) throws IOException {
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        if (host == null)
+            host = server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+        String spec = new String(readResource("petstore/swagger.json"), StandardCharsets.UTF_8).replace("${host}", host);
+        sendBytes(exchange, 200, "application/json", spec.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void sendSwaggerUi(HttpExchange exchange, String file) throws IOException {
+        if (file.isEmpty() || file.contains("..")) {
+            sendMessage(exchange, 404, "unknown", "Not found");
+            return;
+        }
+        String contentType = file.endsWith(".css") ? "text/css" : file.endsWith(".js") ? "application/javascript"
+                : file.endsWith(".png") ? "image/png" : "application/octet-stream";
+        try {
+            sendResource(exchange, SWAGGER_UI_RESOURCES + file, contentType);
+        } catch (FileNotFoundException e) {
+            sendMessage(exchange, 404, "unknown", "Not found");
+        }
+    }
+
+    private void sendResource(HttpExchange exchange, String name, String contentType) throws IOException {
+        sendBytes(exchange, 200, contentType, readResource(name));
+    }
+
+    private void sendMessage(HttpExchange exchange, int status, String type, String message) throws IOException {
+        JsonObject body = new JsonObject();
+        body.addProperty("code", status == 404 && "error".equals(type) ? 1 : status);
+        body.addProperty("type", type);
+        body.addProperty("message", message);
+        send(exchange, status, body);
+    }
+
+    private void send(HttpExchange exchange, int status, JsonElement body) throws IOException {
+        byte[] bytes = body == null ? new byte[0] : gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+        sendBytes(exchange, status, "application/json", bytes);
+    }
+
+    private static void sendBytes(HttpExchange exchange, int status, String contentType, byte[] bytes) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream stream = exchange.getResponseBody()) {
+                stream.write(bytes);
+            }
+        }
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        try (InputStream stream = exchange.getRequestBody()) {
+            return readAll(stream);
+        }
+    }
+
+    private static byte[] readResource(String name) throws IOException {
+        try (InputStream stream = PetStoreServer.class.getClassLoader().getResourceAsStream(name)) {
+            if (stream == null)
+                throw new FileNotFoundException("Resource " + name + " not found on classpath");
+            return readAll(stream);
+        }
+    }
+
+    /**
+     * @return version of the webjar on the classpath, empty if it is missing
+     */
+    private static String webjarVersion(String artifactId) {
+        Properties webjar = new Properties();
+        try (InputStream stream = PetStoreServer.class.getClassLoader()
+                .getResourceAsStream("META-INF/maven/org.webjars/" + artifactId + "/pom.properties")) {
+            if (stream != null)
+                webjar.load(stream);
+        } catch (IOException e) {
+            log.warn("Could not read version of webjar " + artifactId + ": " + e.getMessage());
+        }
+        return webjar.getProperty("version", "");
+    }
+
+    private static byte[] readAll(InputStream stream) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int read;
+        while ((read = stream.read(chunk)) != -1)
+            buffer.write(chunk, 0, read);
+        return buffer.toByteArray();
+    }
+
+    private static Map<String, String> parseForm(String encoded) throws UnsupportedEncodingException {
+        Map<String, String> values = new HashMap<>();
+        if (encoded == null || encoded.isEmpty())
+            return values;
+        for (String pair : encoded.split("&")) {
+            int separator = pair.indexOf('=');
+            String key = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            values.put(URLDecoder.decode(key, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+        }
+        return values;
+    }
+
+    private void pause() {
+        if (latencyMs <= 0)
+            return;
+        try {
+            TimeUnit.MILLISECONDS.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class ServerThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "pet-store-stub-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
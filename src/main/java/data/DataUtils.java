@@ -1,51 +1,174 @@
 package data;
 
+import core.listeners.TestHistory;
 import org.apache.logging.log4j.LogManager;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
-
+/**
+ * Test data from test-data.properties, parsed once per JVM into an immutable snapshot shared by all threads <br>
+ * Values of test-data-{env}.properties override the base file, env is taken from the {@literal env} system property <br>
+ * With -Ddata.reload=true changed data files are picked up by instances created after the change
+ */
 public class DataUtils {
     private static final org.apache.logging.log4j.Logger log = LogManager.getLogger(DataUtils.class);
-    private final Properties properties;
+
+    private static final String DATA_FILE = "test-data";
+    private static final boolean RELOAD = Boolean.getBoolean("data.reload");
+    private static final long RELOAD_INTERVAL_MS = Long.getLong("data.reload.interval", 5000L);
+
+    private static volatile Snapshot shared;
+    private static volatile long nextReloadCheck;
+
+    private final Snapshot data;
 
     public DataUtils() {
-        properties = new Properties();
-        try {
-            properties.load(getClass().getClassLoader().getResourceAsStream("test-data.properties"));
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        data = snapshot();
+        for (String file : dataFiles())
+            TestHistory.recordUsage(file);
     }
 
     public int getId() {
-        return Integer.parseInt(properties.getProperty("id"));
+        return Integer.parseInt(data.values.get("id"));
     }
 
     public int getInvalidID() {
-        return Integer.parseInt(properties.getProperty("invalid_id"));
+        return data.invalidId;
     }
 
     public String getPhotoURL() {
-        return properties.getProperty("photoURL");
+        return data.photoURL;
     }
 
     public String getName() {
-        return properties.getProperty("name");
+        return data.name;
     }
 
     public String getNewName() {
-        return properties.getProperty("new_name");
+        return data.newName;
     }
 
     public String getCategory() {
-        return properties.getProperty("pet_category");
+        return data.category;
     }
 
     public String getTag() {
-        return properties.getProperty("pet_tag");
+        return data.tag;
     }
 
+    /**
+     * Raw value of any key of the data files
+     *
+     * @param key - property key
+     * @return value or null
+     */
+    public String get(String key) {
+        return data.values.get(key);
+    }
 
+    private static Snapshot snapshot() {
+        Snapshot current = shared;
+        if (current == null) {
+            synchronized (DataUtils.class) {
+                if (shared == null)
+                    shared = load();
+                return shared;
+            }
+        }
+        if (RELOAD && System.currentTimeMillis() >= nextReloadCheck) {
+            synchronized (DataUtils.class) {
+                if (System.currentTimeMillis() >= nextReloadCheck) {
+                    nextReloadCheck = System.currentTimeMillis() + RELOAD_INTERVAL_MS;
+                    if (shared.isStale()) {
+                        log.info("Test data files changed, reloading");
+                        shared = load();
+                    }
+                }
+                return shared;
+            }
+        }
+        return current;
+    }
+
+    private static List<String> dataFiles() {
+        List<String> files = new ArrayList<>();
+        files.add(DATA_FILE + ".properties");
+        String env = System.getProperty("env");
+        if (env != null && !env.trim().isEmpty())
+            files.add(DATA_FILE + "-" + env.trim() + ".properties");
+        return files;
+    }
+
+    private static Snapshot load() {
+        Map<String, String> values = new HashMap<>();
+        Map<URL, Long> sources = new HashMap<>();
+        for (String file : dataFiles()) {
+            URL resource = DataUtils.class.getClassLoader().getResource(file);
+            if (resource == null) {
+                log.warn("Test data file '" + file + "' not found on classpath");
+                continue;
+            }
+            Properties properties = new Properties();
+            try {
+                URLConnection connection = resource.openConnection();
+                connection.setUseCaches(false);
+                sources.put(resource, connection.getLastModified());
+                try (InputStream stream = connection.getInputStream()) {
+                    properties.load(stream);
+                }
+            } catch (IOException e) {
+                log.error("Could not read test data file '" + file + "'", e);
+            }
+            for (String key : properties.stringPropertyNames())
+                values.put(key, properties.getProperty(key));
+        }
+        return new Snapshot(values, sources);
+    }
+
+    private static final class Snapshot {
+        private final Map<String, String> values;
+        private final Map<URL, Long> sources;
+
+        private final int invalidId;
+        private final String photoURL;
+        private final String name;
+        private final String newName;
+        private final String category;
+        private final String tag;
+
+        private Snapshot(Map<String, String> values, Map<URL, Long> sources) {
+            this.values = Collections.unmodifiableMap(values);
+            this.sources = Collections.unmodifiableMap(sources);
+            String invalid = values.get("invalid_id");
+            invalidId = invalid == null ? 0 : Integer.parseInt(invalid.trim());
+            photoURL = values.get("photoURL");
+            name = values.get("name");
+            newName = values.get("new_name");
+            category = values.get("pet_category");
+            tag = values.get("pet_tag");
+        }
+
+        private boolean isStale() {
+            for (Map.Entry<URL, Long> source : sources.entrySet()) {
+                try {
+                    URLConnection connection = source.getKey().openConnection();
+                    connection.setUseCaches(false);
+                    if (connection.getLastModified() != source.getValue())
+                        return true;
+                } catch (IOException e) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
 }
@@ -0,0 +1,286 @@
+package data;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import data.pojo.Category;
+import data.pojo.Pet;
+import data.pojo.Tag;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JSON of Pet, Category and Tag through hand-written Gson type adapters, shared by all threads <br>
+ * No reflection and no adapter lookup per call, output is the same as reflective Gson: fields in declaration order, nulls omitted <br>
+ * Each thread writes into its own reused char buffer, a buffer that grew above {@literal MAX_RETAINED_CHARS} is not kept
+ */
+public final class PetCodec {
+
+    private static final int MAX_RETAINED_CHARS = 64 * 1024;
+
+    private static final TypeAdapter<Tag> TAG = new TagAdapter();
+    private static final TypeAdapter<Category> CATEGORY = new CategoryAdapter();
+    private static final TypeAdapter<Pet> PET = new PetAdapter();
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(Tag.class, TAG)
+            .registerTypeAdapter(Category.class, CATEGORY)
+            .registerTypeAdapter(Pet.class, PET)
+            .create();
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    private PetCodec() {
+    }
+
+    /**
+     * @return Gson with the pet adapters registered, for code that handles other types too
+     */
+    public static Gson gson() {
+        return GSON;
+    }
+
+    public static String toJson(Pet pet) {
+        Buffers buffers = BUFFERS.get();
+        StringWriter chars = buffers.chars;
+        try {
+            PET.write(writer(chars), pet);
+            return chars.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buffers.reset();
+        }
+    }
+
+    /**
+     * Encoding the reused char buffer measured faster than writing through an OutputStreamWriter, see PetSerializationBenchmark
+     *
+     * @param pet - pet
+     * @return UTF-8 JSON, e.g. a REST request body
+     */
+    public static byte[] toJsonBytes(Pet pet) {
+        return toJson(pet).getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static Pet fromJson(String json) {
+        return fromJson(new StringReader(json));
+    }
+
+    /**
+     * @param json - UTF-8 JSON of a pet, e.g. a response body stream, not closed
+     * @return pet
+     */
+    public static Pet fromJson(InputStream json) {
+        return fromJson(new InputStreamReader(json, StandardCharsets.UTF_8));
+    }
+
+    public static Pet fromJson(Reader json) {
+        try {
+            JsonReader reader = new JsonReader(json);
+            // Gson.fromJson reads leniently too
+            reader.setLenient(true);
+            return PET.read(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Escapes HTML characters like Gson.toJson does
+     */
+    private static JsonWriter writer(Writer out) {
+        JsonWriter writer = new JsonWriter(out);
+        writer.setHtmlSafe(true);
+        return writer;
+    }
+
+    private static final class Buffers {
+        private final StringWriter chars = new StringWriter(256);
+
+        private void reset() {
+            if (chars.getBuffer().capacity() > MAX_RETAINED_CHARS)
+                BUFFERS.remove();
+            chars.getBuffer().setLength(0);
+        }
+    }
+
+    private static final class PetAdapter extends TypeAdapter<Pet> {
+        @Override
+        public void write(JsonWriter out, Pet pet) throws IOException {
+            if (pet == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("id").value(pet.getId());
+            if (pet.getCategory() != null) {
+                out.name("category");
+                CATEGORY.write(out, pet.getCategory());
+            }
+            if (pet.getName() != null)
+                out.name("name").value(pet.getName());
+            if (pet.getPhotoUrls() != null) {
+                out.name("photoUrls").beginArray();
+                for (String photoUrl : pet.getPhotoUrls())
+                    out.value(photoUrl);
+                out.endArray();
+            }
+            if (pet.getTags() != null) {
+                out.name("tags").beginArray();
+                for (Tag tag : pet.getTags())
+                    TAG.write(out, tag);
+                out.endArray();
+            }
+            if (pet.getStatus() != null)
+                out.name("status").value(pet.getStatus());
+            out.endObject();
+        }
+
+        @Override
+        public Pet read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Pet pet = new Pet();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    // reflective Gson leaves primitives at their default and objects null
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "id":
+                        pet.setId(in.nextInt());
+                        break;
+                    case "category":
+                        pet.setCategory(CATEGORY.read(in));
+                        break;
+                    case "name":
+                        pet.setName(in.nextString());
+                        break;
+                    case "photoUrls":
+                        List<String> photoUrls = new ArrayList<>();
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            if (in.peek() == JsonToken.NULL) {
+                                in.nextNull();
+                                photoUrls.add(null);
+                            } else {
+                                photoUrls.add(in.nextString());
+                            }
+                        }
+                        in.endArray();
+                        pet.setPhotoUrls(photoUrls);
+                        break;
+                    case "tags":
+                        List<Tag> tags = new ArrayList<>();
+                        in.beginArray();
+                        while (in.hasNext())
+                            tags.add(TAG.read(in));
+                        in.endArray();
+                        pet.setTags(tags);
+                        break;
+                    case "status":
+                        pet.setStatus(in.nextString());
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return pet;
+        }
+    }
+
+    private static final class CategoryAdapter extends TypeAdapter<Category> {
+        @Override
+        public void write(JsonWriter out, Category category) throws IOException {
+            if (category == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("id").value(category.getId());
+            if (category.getName() != null)
+                out.name("name").value(category.getName());
+            out.endObject();
+        }
+
+        @Override
+        public Category read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Category category = new Category();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL)
+                    in.nextNull();
+                else if ("id".equals(name))
+                    category.setId(in.nextInt());
+                else if ("name".equals(name))
+                    category.setName(in.nextString());
+                else
+                    in.skipValue();
+            }
+            in.endObject();
+            return category;
+        }
+    }
+
+    private static final class TagAdapter extends TypeAdapter<Tag> {
+        @Override
+        public void write(JsonWriter out, Tag tag) throws IOException {
+            if (tag == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("id").value(tag.getId());
+            if (tag.getName() != null)
+                out.name("name").value(tag.getName());
+            out.endObject();
+        }
+
+        @Override
+        public Tag read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Tag tag = new Tag();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL)
+                    in.nextNull();
+                else if ("id".equals(name))
+                    tag.setId(in.nextInt());
+                else if ("name".equals(name))
+                    tag.setName(in.nextString());
+                else
+                    in.skipValue();
+            }
+            in.endObject();
+            return tag;
+        }
+    }
+}
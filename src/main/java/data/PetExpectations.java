@@ -0,0 +1,54 @@
+package data;
+
+import core.json.JsonExpectations;
+import data.pojo.Pet;
+
+import static org.hamcrest.Matchers.containsStringIgnoringCase;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.equalToCompressingWhiteSpace;
+
+/**
+ * Streaming JSON expectations built from the pet model, see {@literal JsonExpectations}
+ */
+public final class PetExpectations {
+
+    private PetExpectations() {
+    }
+
+    /**
+     * Body of GET /v2/pet/{id} must describe the pet: id, name, status, category, first tag and photo url
+     *
+     * @param pet - expected pet
+     * @return expectations to verify a response with
+     */
+    public static JsonExpectations of(Pet pet) {
+        JsonExpectations expectations = JsonExpectations.create()
+                .expect("id", equalTo(pet.getId()))
+                .expect("name", equalToCompressingWhiteSpace(pet.getName()))
+                .expect("status", equalToCompressingWhiteSpace(pet.getStatus()));
+        if (pet.getCategory() != null) {
+            expectations.expect("category.id", equalTo(pet.getCategory().getId()))
+                    .expect("category.name", equalTo(pet.getCategory().getName()));
+        }
+        if (pet.getTags() != null && !pet.getTags().isEmpty()) {
+            expectations.expect("tags[0].id", equalTo(pet.getTags().get(0).getId()))
+                    .expect("tags[0].name", equalTo(pet.getTags().get(0).getName()));
+        }
+        if (pet.getPhotoUrls() != null && !pet.getPhotoUrls().isEmpty())
+            expectations.expect("photoUrls[0]", containsStringIgnoringCase(pet.getPhotoUrls().get(0)));
+        return expectations;
+    }
+
+    /**
+     * Body of GET /v2/pet/findByStatus must list only pets of the status, the pet among them
+     *
+     * @param pet    - pet expected in the list
+     * @param status - requested status
+     * @return expectations to verify a response with
+     */
+    public static JsonExpectations listed(Pet pet, String status) {
+        return JsonExpectations.create()
+                .expect("[*].status", equalTo(status))
+                .expectAny("[*].id", equalTo(pet.getId()));
+    }
+}
@@ -0,0 +1,122 @@
+package data;
+
+import data.pojo.Category;
+import data.pojo.Pet;
+import data.pojo.Tag;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads pets one line at a time from a fixture file, nothing but the current line is kept in memory <br>
+ * *.jsonl - one Pet JSON object per line <br>
+ * *.csv - header line with columns id,name,status,category_id,category_name,tag_id,tag_name,photo_url, values without commas <br>
+ * File is looked up on disk first, then on the classpath
+ */
+public class PetFileReader implements Closeable {
+
+
+    private final String file;
+    private final BufferedReader reader;
+    private final boolean csv;
+    private Map<String, Integer> columns;
+    private long lineNumber;
+
+    public PetFileReader(String file) throws IOException {
+        this.file = file;
+        this.csv = file.toLowerCase().endsWith(".csv");
+        this.reader = new BufferedReader(new InputStreamReader(open(file), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parse the next record
+     *
+     * @return next pet or null at the end of the file
+     */
+    public Pet next() {
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty() || line.startsWith("#"))
+                    continue;
+                if (csv && columns == null) {
+                    columns = parseHeader(line);
+                    continue;
+                }
+                return csv ? fromCsv(line) : PetCodec.fromJson(line);
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + file, e);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid pet record at " + file + ":" + lineNumber, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private Pet fromCsv(String line) {
+        String[] values = line.split(",", -1);
+
+        Category category = new Category();
+        category.setId(Integer.parseInt(value(values, "category_id")));
+        category.setName(value(values, "category_name"));
+
+        Tag tag = new Tag();
+        tag.setId(Integer.parseInt(value(values, "tag_id")));
+        tag.setName(value(values, "tag_name"));
+
+        Pet pet = new Pet();
+        pet.setId(Integer.parseInt(value(values, "id")));
+        pet.setName(value(values, "name"));
+        pet.setStatus(value(values, "status"));
+        pet.setCategory(category);
+        pet.setTags(Collections.singletonList(tag));
+        pet.setPhotoUrls(Collections.singletonList(value(values, "photo_url")));
+        return pet;
+    }
+
+    private String value(String[] values, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= values.length)
+            throw new IllegalArgumentException("Missing column '" + column + "'");
+        return values[index].trim();
+    }
+
+    private static Map<String, Integer> parseHeader(String line) {
+        Map<String, Integer> header = new HashMap<>();
+        String[] names = line.split(",");
+        for (int i = 0; i < names.length; i++)
+            header.put(names[i].trim().toLowerCase(), i);
+        if (!header.keySet().containsAll(Arrays.asList("id", "name", "status", "category_id", "category_name", "tag_id", "tag_name", "photo_url")))
+            throw new IllegalArgumentException("CSV header must contain id,name,status,category_id,category_name,tag_id,tag_name,photo_url");
+        return header;
+    }
+
+    private static InputStream open(String file) throws IOException {
+        Path path = Paths.get(file);
+        if (Files.isRegularFile(path))
+            return Files.newInputStream(path);
+        InputStream resource = PetFileReader.class.getClassLoader().getResourceAsStream(file);
+        if (resource == null)
+            throw new FileNotFoundException("Pet fixture file '" + file + "' not found on disk or classpath");
+        return resource;
+    }
+}
@@ -0,0 +1,139 @@
+package data;
+
+import core.RestClient;
+import data.pojo.Pet;
+import io.restassured.http.ContentType;
+import org.apache.http.HttpStatus;
+import org.apache.logging.log4j.LogManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.anyOf;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Seeds pets straight through POST /v2/pet, for tests that need a pet to exist but do not verify the Swagger UI <br>
+ * Requests run concurrently on a shared pool of {@literal fixtures.parallelism} threads <br>
+ * Created IDs are remembered and removed with {@literal deleteAll()} at teardown
+ */
+public class PetFixtures {
+    private static final org.apache.logging.log4j.Logger log = LogManager.getLogger(PetFixtures.class);
+
+    private static final int PARALLELISM = Integer.getInteger("fixtures.parallelism", 4);
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(PARALLELISM, new FixtureThreadFactory());
+
+    private final String baseUri;
+    private final Queue<Integer> createdIds = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param baseUri - Pet Store API root, e.g. https://petstore.swagger.io/v2
+     */
+    public PetFixtures(String baseUri) {
+        this.baseUri = baseUri;
+    }
+
+    /**
+     * Create one pet
+     *
+     * @param pet - pet with category, tags and photos
+     * @return ID of the created pet
+     */
+    public int seed(Pet pet) {
+        return seed(Collections.singletonList(pet)).get(0);
+    }
+
+    /**
+     * Create pets concurrently
+     *
+     * @param pets - pets to create
+     * @return IDs of the created pets in the order of the given pets
+     */
+    public List<Integer> seed(Collection<Pet> pets) {
+        List<Future<Integer>> requests = new ArrayList<>(pets.size());
+        for (Pet pet : pets)
+            requests.add(EXECUTOR.submit(() -> create(pet)));
+
+        List<Integer> ids = new ArrayList<>(pets.size());
+        for (Future<Integer> request : requests)
+            ids.add(await(request));
+        log.info("Seeded " + ids.size() + " pet(s) through REST API");
+        return ids;
+    }
+
+    /**
+     * Delete every pet created by this instance, pets already deleted by tests are skipped
+     */
+    public void deleteAll() {
+        List<Future<?>> requests = new ArrayList<>();
+        Integer id;
+        while ((id = createdIds.poll()) != null) {
+            final int petId = id;
+            requests.add(EXECUTOR.submit(() -> delete(petId)));
+        }
+        for (Future<?> request : requests)
+            await(request);
+        if (!requests.isEmpty())
+            log.info("Deleted " + requests.size() + " seeded pet(s)");
+    }
+
+    private int create(Pet pet) {
+        Number id = RestClient.given(baseUri)
+                .contentType(ContentType.JSON)
+                .body(PetCodec.toJsonBytes(pet))
+                .when()
+                .post("/pet")
+                .then()
+                .assertThat()
+                .statusCode(HttpStatus.SC_OK)
+                .extract().path("id");
+        createdIds.add(id.intValue());
+        return id.intValue();
+    }
+
+    private void delete(int id) {
+        RestClient.given(baseUri)
+                .header("api_key", "special-key")
+                .when()
+                .delete("/pet/" + id)
+                .then()
+                .assertThat()
+                .statusCode(anyOf(equalTo(HttpStatus.SC_OK), equalTo(HttpStatus.SC_NOT_FOUND)));
+    }
+
+    private static <T> T await(Future<T> request) {
+        try {
+            return request.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for fixture request", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static final class FixtureThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "pet-fixtures-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package data;
+
+import core.listeners.ShardSelector;
+import data.pojo.Category;
+import data.pojo.Pet;
+import data.pojo.Tag;
+import org.apache.logging.log4j.LogManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Generates pets with categories, tags and photo urls from the run seed ({@literal seed}, random and logged if not set) <br>
+ * IDs above {@literal pets.idBase} are split into streams of {@literal pets.streamSize} IDs, a shard (-Dshard=i/n) owns
+ * its own slice of streams and every thread takes its own stream, so no two generators hand out the same ID <br>
+ * Pet n of a stream only depends on the seed, the shard and the stream, so any run is reproduced with the same -Dseed,
+ * the seed also rotates the streams, so concurrent runs with different seeds rarely share IDs <br>
+ * Generation takes no locks, a pet costs one SplittableRandom and a handful of small objects
+ */
+public final class PetGenerator {
+
+    private static final org.apache.logging.log4j.Logger log = LogManager.getLogger(PetGenerator.class);
+
+    public static final long SEED = Long.getLong("seed", System.nanoTime() ^ System.currentTimeMillis() << 20);
+    private static final int ID_BASE = Integer.getInteger("pets.idBase", 100_000_000);
+    private static final int STREAM_SIZE = Integer.getInteger("pets.streamSize", 1_000_000);
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private static final String[] NAMES = {"Bella", "Max", "Luna", "Charlie", "Lucy", "Cooper", "Daisy", "Milo", "Bailey", "Rocky",
+            "Sadie", "Buddy", "Molly", "Bear", "Stella", "Tucker", "Maggie", "Duke", "Chloe", "Zeus", "Penny", "Oliver", "Zoe", "Leo",
+            "Lola", "Bentley", "Rosie", "Winston", "Ruby", "Murphy", "Nala", "Jack", "Coco", "Toby", "Lily", "Ollie", "Pepper", "Louie",
+            "Gracie", "Bruno", "Sophie", "Finn", "Roxy", "Gus", "Willow", "Apollo", "Ginger", "Butch", "Hazel", "Ziggy", "Mocha", "Biscuit",
+            "Pixel", "Nugget", "Olive", "Rex", "Mango", "Shadow", "Pumpkin", "Ranger", "Misty", "Whiskers", "Kiwi", "Otis"};
+    private static final String[] NAME_SUFFIXES = {"Jr.", "II", "the Great", "the Brave", "von Woof", "of the Yard"};
+    private static final String[] CATEGORIES = {"Dogs", "Cats", "Birds", "Fish", "Reptiles", "Rabbits", "Hamsters", "Guard category"};
+    private static final String[] TAGS = {"friendly", "trained", "young", "senior", "vaccinated", "playful", "calm", "hypoallergenic",
+            "house-broken", "good with kids", "Guard", "rescue"};
+    private static final String[] STATUSES = {"available", "available", "available", "available", "available", "available", "available",
+            "pending", "pending", "sold"};
+    private static final int[] PHOTO_WIDTHS = {320, 480, 640, 800, 1024};
+
+    private static final int FIRST_STREAM;
+    private static final int STREAMS;
+    private static final AtomicInteger NEXT_STREAM = new AtomicInteger();
+    private static final ThreadLocal<PetGenerator> THREAD_GENERATOR = ThreadLocal.withInitial(() -> forStream(NEXT_STREAM.getAndIncrement()));
+
+    static {
+        int[] shard = ShardSelector.currentShard();
+        int index = shard == null ? 1 : shard[0];
+        int count = shard == null ? 1 : shard[1];
+        int allStreams = (int) (((long) Integer.MAX_VALUE - ID_BASE) / STREAM_SIZE);
+        STREAMS = allStreams / count;
+        if (STREAMS < 1)
+            throw new IllegalStateException("No ID stream left for shard " + index + "/" + count + ", lower pets.streamSize or pets.idBase");
+        FIRST_STREAM = (index - 1) * STREAMS;
+        log.info("Pet data seed " + SEED + " (reproduce with -Dseed=" + SEED + "), " + STREAMS + " ID streams of " + STREAM_SIZE + " for this JVM");
+    }
+
+    private final long streamSeed;
+    private final int firstId;
+    private long next;
+
+    private PetGenerator(int stream) {
+        if (stream < 0 || stream >= STREAMS)
+            throw new IllegalArgumentException("ID stream " + stream + " is out of 0.." + (STREAMS - 1));
+        int slot = FIRST_STREAM + (int) Math.floorMod(stream + mix(SEED), (long) STREAMS);
+        this.firstId = (int) (ID_BASE + (long) slot * STREAM_SIZE);
+        this.streamSeed = mix(SEED + GOLDEN_GAMMA * (slot + 1));
+    }
+
+    /**
+     * Generator of an explicit stream, for reproducible data independent of thread scheduling
+     *
+     * @param stream - stream number, 0-based, unique among generators used concurrently
+     * @return generator
+     */
+    public static PetGenerator forStream(int stream) {
+        return new PetGenerator(stream);
+    }
+
+    /**
+     * Generator of a stream no thread and no other caller gets, e.g. for load iterations numbered from 0 on worker threads <br>
+     * {@literal pet(n)} of it never repeats a pet of {@literal forCurrentThread().next()}
+     *
+     * @return generator, {@literal pet(n)} may be called from several threads
+     */
+    public static PetGenerator forNewStream() {
+        return forStream(NEXT_STREAM.getAndIncrement());
+    }
+
+    /**
+     * Generator owned by the calling thread, streams are given to threads in order of their first call
+     *
+     * @return generator, not to be shared with other threads
+     */
+    public static PetGenerator forCurrentThread() {
+        return THREAD_GENERATOR.get();
+    }
+
+    /**
+     * @return next pet of the stream
+     */
+    public Pet next() {
+        return pet(next++);
+    }
+
+    /**
+     * Pet number n of the stream, the same for the same seed, shard and stream
+     *
+     * @param n - pet number, 0-based
+     * @return new pet
+     */
+    public Pet pet(long n) {
+        if (n < 0 || n >= STREAM_SIZE)
+            throw new IllegalArgumentException("Pet " + n + " is out of the ID stream of " + STREAM_SIZE + ", raise pets.streamSize");
+        SplittableRandom random = new SplittableRandom(mix(streamSeed + GOLDEN_GAMMA * (n + 1)));
+        int id = firstId + (int) n;
+
+        int categoryIndex = random.nextInt(CATEGORIES.length);
+        Category category = new Category();
+        category.setId(categoryIndex + 1);
+        category.setName(CATEGORIES[categoryIndex]);
+
+        int tagCount = 1 + random.nextInt(3);
+        List<Tag> tags = new ArrayList<>(tagCount);
+        int tagIndex = random.nextInt(TAGS.length);
+        for (int i = 0; i < tagCount; i++) {
+            // consecutive tags of the catalog never repeat within a pet
+            int index = (tagIndex + i) % TAGS.length;
+            Tag tag = new Tag();
+            tag.setId(index + 1);
+            tag.setName(TAGS[index]);
+            tags.add(tag);
+        }
+
+        int photoCount = 1 + random.nextInt(2);
+        List<String> photoUrls = new ArrayList<>(photoCount);
+        for (int i = 0; i < photoCount; i++) {
+            int width = PHOTO_WIDTHS[random.nextInt(PHOTO_WIDTHS.length)];
+            photoUrls.add("https://placedog.net/" + width + "/" + width * 3 / 4 + "?id=" + (1 + random.nextInt(200)));
+        }
+
+        String name = NAMES[random.nextInt(NAMES.length)];
+        if (random.nextInt(4) == 0)
+            name = name + " " + NAME_SUFFIXES[random.nextInt(NAME_SUFFIXES.length)];
+
+        Pet pet = new Pet();
+        pet.setId(id);
+        pet.setName(name);
+        pet.setStatus(STATUSES[random.nextInt(STATUSES.length)]);
+        pet.setCategory(category);
+        pet.setTags(tags);
+        pet.setPhotoUrls(photoUrls);
+        return pet;
+    }
+
+    /**
+     * Lazily generated pets for volume runs, nothing is kept in memory
+     *
+     * @param count - number of pets, from pet 0 of the stream
+     * @return sequential stream of new pets
+     */
+    public Stream<Pet> stream(long count) {
+        return LongStream.range(0, count).mapToObj(this::pet);
+    }
+
+    /**
+     * @return first ID of the stream, IDs up to first + pets.streamSize - 1 belong to it
+     */
+    public int getFirstId() {
+        return firstId;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,153 @@
+package data;
+
+import core.listeners.TestHistory;
+import data.pojo.Pet;
+import org.apache.logging.log4j.LogManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Streams pets of a fixture file to parallel test threads <br>
+ * A background thread parses the file into a queue of at most {@literal readAhead} pets,
+ * shards take pets from the queue as they go, so a fast thread simply handles more records <br>
+ * Memory stays bounded by the read-ahead however large the file is
+ */
+public class PetStream {
+    private static final org.apache.logging.log4j.Logger log = LogManager.getLogger(PetStream.class);
+
+    private static final Pet END = new Pet();
+
+    private final String file;
+    private final BlockingQueue<Pet> queue;
+    private volatile RuntimeException failure;
+
+    private PetStream(String file, int readAhead) {
+        this.file = file;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, readAhead));
+    }
+
+    /**
+     * Start reading the file in the background
+     *
+     * @param file      - fixture file, see {@literal PetFileReader}
+     * @param readAhead - max number of parsed pets waiting for a test thread
+     * @return stream to split into shards
+     */
+    public static PetStream open(String file, int readAhead) {
+        PetStream stream = new PetStream(file, readAhead);
+        Thread reader = new Thread(stream::read, "pet-stream-reader");
+        reader.setDaemon(true);
+        reader.start();
+        return stream;
+    }
+
+    /**
+     * Data provider rows, one shard per row, to be run with parallel = true
+     *
+     * @param count - number of shards, usually data-provider-thread-count
+     * @return lazily created rows with a single Shard parameter
+     */
+    public Iterator<Object[]> shards(int count) {
+        List<Object[]> shards = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++)
+            shards.add(new Object[]{new Shard(i, count)});
+        return shards.iterator();
+    }
+
+    private void read() {
+        long count = 0;
+        try (PetFileReader reader = new PetFileReader(file)) {
+            Pet pet;
+            while ((pet = reader.next()) != null) {
+                queue.put(pet);
+                count++;
+            }
+            log.info("Read " + count + " pet(s) from " + file);
+        } catch (IOException e) {
+            failure = new IllegalStateException("Could not read " + file, e);
+        } catch (RuntimeException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = new IllegalStateException("Reading " + file + " was interrupted", e);
+        } finally {
+            putEnd();
+        }
+    }
+
+    private void putEnd() {
+        try {
+            queue.put(END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Part of the stream consumed by one test thread
+     */
+    public final class Shard implements Iterable<Pet> {
+        private final int index;
+        private final int count;
+
+        private Shard(int index, int count) {
+            this.index = index;
+            this.count = count;
+        }
+
+        @Override
+        public Iterator<Pet> iterator() {
+            // the file is read on a background thread, the test using it is known here
+            TestHistory.recordUsage(file);
+            return new Iterator<Pet>() {
+                private Pet next;
+                private boolean done;
+
+                @Override
+                public boolean hasNext() {
+                    if (next == null && !done) {
+                        next = take();
+                        if (next == END) {
+                            // leave the marker for the other shards
+                            putEnd();
+                            next = null;
+                            done = true;
+                            if (failure != null)
+                                throw failure;
+                        }
+                    }
+                    return next != null;
+                }
+
+                @Override
+                public Pet next() {
+                    if (!hasNext())
+                        throw new NoSuchElementException();
+                    Pet pet = next;
+                    next = null;
+                    return pet;
+                }
+            };
+        }
+
+        private Pet take() {
+            try {
+                return queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for pets from " + file, e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return file + " shard " + index + "/" + count;
+        }
+    }
+}
@@ -1,30 +1,23 @@
 package pages;
 
 import data.DataUtils;
-import data.pojo.Category;
+import data.PetCodec;
+import data.PetExpectations;
+import data.PetFixtures;
+import data.PetGenerator;
 import data.pojo.Pet;
-import data.pojo.Tag;
-import com.codeborne.selenide.Condition;
-import com.codeborne.selenide.Selenide;
-import com.codeborne.selenide.SelenideElement;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import core.Poller;
+import core.RestClient;
+import core.json.JsonExpectations;
 import io.qameta.allure.Step;
-import io.restassured.RestAssured;
-import io.restassured.path.json.JsonPath;
 import io.restassured.response.Response;
-import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.http.HttpStatus;
 import org.apache.http.entity.ContentType;
 import org.apache.logging.log4j.LogManager;
 import org.testng.Assert;
 import pages.base.BasePage;
+import pages.base.Locator;
 
-import java.util.Arrays;
-
-import static com.codeborne.selenide.Selenide.*;
-import static io.restassured.RestAssured.baseURI;
-import static io.restassured.RestAssured.get;
 import static org.hamcrest.Matchers.*;
 import static org.testng.Assert.assertEquals;
 
@@ -32,96 +25,104 @@ public class PetStorePage extends BasePage {
 
     private static final org.apache.logging.log4j.Logger log = LogManager.getLogger(PetStorePage.class);
 
-    private final String url = manager.getStartUrl();
+    private final String url;
+    private final String apiUrl;
 
     private final int id;
     private int invalid_id;
-    private String photoURL;
-    private String name;
     private String new_name;
-    private String pet_category;
-    private String pet_tag;
 
-    private Pet pet = new Pet();
+    private final Pet pet;
+    private PetFixtures fixtures;
 
-    protected static final SelenideElement ADD_NEW_PET_FIELD = $x("//*[@id='operations-pet-addPet']");
-    protected static final SelenideElement TRY_IT_OUT_BUTTON = $x("//button[@class='btn try-out__btn']");
-    protected static final SelenideElement EXECUTE_BUTTON = $x("//button[@class='btn execute opblock-control__btn']");
-    protected static final SelenideElement TEST_PARAMETERS = $x("//textarea[@class='body-param__text']");
+    protected static final Locator ADD_NEW_PET_FIELD = Locator.xpath("'Add new pet to the store' element", "//*[@id='operations-pet-addPet']");
+    protected static final Locator TRY_IT_OUT_BUTTON = Locator.xpath("'Try it out' button", "//button[@class='btn try-out__btn']");
+    protected static final Locator EXECUTE_BUTTON = Locator.xpath("'Execute' button", "//button[@class='btn execute opblock-control__btn']");
+    protected static final Locator TEST_PARAMETERS = Locator.xpath("test parameters area", "//textarea[@class='body-param__text']");
 
+    /**
+     * Page object for the next generated pet of the calling thread, see {@literal PetGenerator}
+     */
     public PetStorePage() {
-        id = Integer.parseInt(RandomStringUtils.randomNumeric(5));
-        invalid_id = new DataUtils().getInvalidID();
-        photoURL = new DataUtils().getPhotoURL();
-        name = new DataUtils().getName();
-        new_name = new DataUtils().getNewName();
-        pet_category = new DataUtils().getCategory();
-        pet_tag = new DataUtils().getTag();
-        RestAssured.baseURI = manager.getStartUrl() + "/v2";
+        this(null);
+    }
+
+    /**
+     * Page object for a given pet, e.g. a record of a fixture file
+     *
+     * @param pet - pet to create and verify, null for the next generated pet of the calling thread
+     */
+    public PetStorePage(Pet pet) {
+        url = getManager().getStartUrl();
+        DataUtils data = new DataUtils();
+        invalid_id = data.getInvalidID();
+        new_name = data.getNewName();
+        apiUrl = url + "/v2";
+        this.pet = pet != null ? pet : PetGenerator.forCurrentThread().next();
+        id = this.pet.getId();
     }
 
     @Override
     public PetStorePage openUrl() {
         log.info("Open pet store page" + url);
-        Selenide.open(url);
+        open(url);
         return this;
     }
 
     @Step("Open 'Add new pet to the store' menu")
     public PetStorePage openMenu() {
         log.info("Open 'Add new pet to the store' menu");
-        ADD_NEW_PET_FIELD.click();
-        ADD_NEW_PET_FIELD.scrollIntoView(true);
+        click(ADD_NEW_PET_FIELD);
+        scrollIntoView(ADD_NEW_PET_FIELD);
         return this;
     }
 
     @Step("Click 'Try it out' button")
     public PetStorePage clickTryItOutButton() {
         log.info("Click 'Try it out' button");
-        TRY_IT_OUT_BUTTON.click();
+        click(TRY_IT_OUT_BUTTON);
         return this;
     }
 
     @Step("Click 'Execute' button")
     public PetStorePage clickExecuteButton() {
         log.info("Click 'Execute' button");
-        EXECUTE_BUTTON.click();
-        EXECUTE_BUTTON.scrollIntoView(true);
+        click(EXECUTE_BUTTON);
+        scrollIntoView(EXECUTE_BUTTON);
         return this;
     }
 
     @Step("Click on test parameters area")
     public PetStorePage clearOnTestParametersArea() {
         log.info("Click on test parameters area");
-        TEST_PARAMETERS.click();
-        TEST_PARAMETERS.setValue("");
+        click(TEST_PARAMETERS);
+        setValue(TEST_PARAMETERS, "");
         return this;
     }
 
     @Step("Check that 'Add new pet to the store' element is displayed")
     public PetStorePage checkAddNewPetElement() {
         log.info("Check that 'Add new pet to the store' element is displayed");
-        ADD_NEW_PET_FIELD.shouldBe(Condition.visible);
-        Assert.assertTrue(ADD_NEW_PET_FIELD.isDisplayed(), " Add new pet to the store element is displayed");
+        waitVisible(ADD_NEW_PET_FIELD);
         return this;
     }
 
     @Step("Check that 'Try it out' button is displayed")
     public PetStorePage checkTryItOutButton() {
         log.info("Check that 'Try it out' button is displayed");
-        Assert.assertTrue(TRY_IT_OUT_BUTTON.isDisplayed(), " 'Try it out' button is is displayed");
+        Assert.assertTrue(snapshot(TRY_IT_OUT_BUTTON).isVisible(TRY_IT_OUT_BUTTON), " 'Try it out' button is is displayed");
         return this;
     }
 
     @Step("Check that test parameters area is displayed")
     public PetStorePage checkTestParametersArea() {
         log.info("Check that test parameters area is displayed");
-        Assert.assertTrue(TEST_PARAMETERS.isDisplayed(), " Test parameters area is displayed");
+        Assert.assertTrue(snapshot(TEST_PARAMETERS).isVisible(TEST_PARAMETERS), " Test parameters area is displayed");
         return this;
     }
 
-    public PetStorePage checkId() throws InterruptedException {
-        Thread.sleep(2000);
+    public PetStorePage checkId() {
+        Poller.untilTrue("pet " + pet.getId() + " is stored", () -> RestClient.given(apiUrl).get("/pet/" + pet.getId()).getStatusCode() == HttpStatus.SC_OK);
         checkNewIDExist();
         return this;
     }
@@ -139,52 +140,67 @@ public class PetStorePage extends BasePage {
         return this;
     }
 
-    @Step("Set correct data")
-    public PetStorePage setNewPetCorrectData() {
-        Category category = new Category();
-        category.setId(id);
-        category.setName(pet_category);
-
-        Tag tag = new Tag();
-        tag.setId(id);
-        tag.setName(pet_tag);
+    @Step("Create new pet through REST API")
+    public PetStorePage seedTestData() {
+        if (fixtures == null)
+            fixtures = new PetFixtures(apiUrl);
+        fixtures.seed(pet);
+        return this;
+    }
 
-        pet.setId(id);
-        pet.setName(name);
-        pet.setStatus("available");
-        pet.setCategory(category);
-        pet.setTags(Arrays.asList(tag));
-        pet.setPhotoUrls(Arrays.asList(photoURL));
+    @Step("Remove pets created through REST API")
+    public PetStorePage removeSeededData() {
+        if (fixtures != null)
+            fixtures.deleteAll();
+        return this;
+    }
 
-        Gson gson = new GsonBuilder().create();
-        String json = gson.toJson(pet);
+    @Step("Add new pet through REST API")
+    public PetStorePage addPetData() {
+        RestClient.given(apiUrl)
+                .contentType(ContentType.APPLICATION_JSON.getMimeType())
+                .body(PetCodec.toJsonBytes(pet))
+                .when()
+                .post("/pet")
+                .then()
+                .assertThat()
+                .statusCode(HttpStatus.SC_OK);
+        return this;
+    }
 
-        TEST_PARAMETERS.setValue(json);
+    @Step("Set correct data")
+    public PetStorePage setNewPetCorrectData() {
+        setValue(TEST_PARAMETERS, PetCodec.toJson(pet));
         return this;
     }
 
     @Step("Check that new pet ID created")
     public PetStorePage checkNewIDExist() {
-        get(baseURI + "/pet/" + pet.getId()).then()
+        Response response = RestClient.given(apiUrl).get("/pet/" + pet.getId());
+        response.then()
                 .assertThat()
                 .statusCode(HttpStatus.SC_OK)
                 .log()
-                .body()
-                .body("id", equalTo(pet.getId()))
-                .body("name", equalToCompressingWhiteSpace(pet.getName()))
-                .body("status", equalToCompressingWhiteSpace(pet.getStatus()))
-                .body("category.id",equalTo(pet.getCategory().getId()))
-                .body("category.name",equalTo(pet.getCategory().getName()))
-                .body("tags[0].id",equalTo(pet.getTags().get(0).getId()))
-                .body("tags[0].name",equalTo(pet.getTags().get(0).getName()))
-                .body("photoUrls[0]", containsStringIgnoringCase(photoURL));
+                .body();
+        PetExpectations.of(pet).verify(response);
+        return this;
+    }
 
+    @Step("Check that new pet is listed by status")
+    public PetStorePage checkPetListedByStatus() {
+        Response response = RestClient.given(apiUrl)
+                .queryParam("status", pet.getStatus())
+                .get("/pet/findByStatus");
+        response.then()
+                .assertThat()
+                .statusCode(HttpStatus.SC_OK);
+        PetExpectations.listed(pet, pet.getStatus()).verify(response);
         return this;
     }
 
     @Step("Update pet data")
     public PetStorePage updatePetData() {
-        RestAssured.given()
+        RestClient.given(apiUrl)
                 .when()
                 .contentType(ContentType.APPLICATION_FORM_URLENCODED.getMimeType())
                 .formParam("name", new_name)
@@ -200,24 +216,23 @@ public class PetStorePage extends BasePage {
 
     @Step("Check updated data")
     public PetStorePage checkUpdatedPetData() {
-        JsonPath jsonPath = RestAssured.given()
+        Response response = RestClient.given(apiUrl)
                 .when()
-                .get("/pet/" + id)
-                .then()
-                .assertThat()
-                .statusCode(200)
+                .get("/pet/" + id);
+        response.then()
                 .assertThat()
-                .extract().body().jsonPath();
-
-        assertEquals(jsonPath.get("name"), new_name);
-        assertEquals(jsonPath.get("status"), "pending");
+                .statusCode(200);
+        JsonExpectations.create()
+                .expect("name", equalTo(new_name))
+                .expect("status", equalTo("pending"))
+                .verify(response);
 
         return this;
     }
 
     @Step("Delete pet's data from store")
     public PetStorePage deletePetDataFromStore() {
-        RestAssured.given()
+        RestClient.given(apiUrl)
                 .when()
                 .header("api_key", "special-key")
                 .delete("/pet/" + id)
@@ -231,7 +246,7 @@ public class PetStorePage extends BasePage {
 
     @Step("Delete non-existent pet data")
     public PetStorePage deleteNonExistentPetData() {
-        RestAssured.given()
+        RestClient.given(apiUrl)
                 .when()
                 .header("api_key", "special-key")
                 .delete("/pet/" + id)
@@ -244,8 +259,9 @@ public class PetStorePage extends BasePage {
     @Step("Check invalid ID not exist")
     public PetStorePage checkInvalidPetsID() {
         Response response =
-                get("/pet/" + invalid_id);
-        assertEquals(response.getStatusCode(), 200);
+                RestClient.given(apiUrl).get("/pet/" + invalid_id);
+        assertEquals(response.getStatusCode(), 404);
+        assertEquals(response.jsonPath().getString("message"), "Pet not found");
         return this;
     }
 }
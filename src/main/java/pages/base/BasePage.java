@@ -1,12 +1,99 @@
 package pages.base;
 
+import com.codeborne.selenide.Selenide;
+import core.CdpChannel;
+import core.Poller;
 import core.TestManager;
+import core.listeners.TestHistory;
+import core.metrics.StepTimings;
 import org.apache.logging.log4j.LogManager;
+import org.openqa.selenium.By;
+import org.openqa.selenium.ElementNotInteractableException;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Base of page objects <br>
+ * Elements are described by {@literal Locator} and read in batches: {@literal snapshot} checks presence, visibility, text
+ * and attributes of any number of elements in one JavaScript call <br>
+ * Handles of visible elements found by a snapshot are cached per browser and reused by {@literal click}, {@literal setValue},
+ * {@literal scrollIntoView} without another lookup. The cache belongs to one document and DOM version, it is dropped when a snapshot
+ * sees a navigation or added/removed nodes. An action on a handle that went stale or not interactable in between, or on an element
+ * not cached, polls snapshots until the element is visible and acts then <br>
+ * With the cdp transport ({@literal DriverTransport}) snapshots and element actions go over the DevTools channel of the session
+ * instead, each action finds its element, checks that it is visible and acts in one script, retried until the element is visible
+ */
 public abstract class BasePage {
     private static final org.apache.logging.log4j.Logger log = LogManager.getLogger(BasePage.class);
 
-    public TestManager manager = TestManager.getActualInstance();
+    /**
+     * arguments[0] - XPaths, arguments[1] - return element handles, returns the page state (document id and DOM version) and for
+     * each XPath null or the first match with its visibility, text and attributes. The document id lives in window, so a navigation
+     * starts a new one
+     */
+    static final String SNAPSHOT_SCRIPT = String.join("\n",
+            "var state = window.__pageState;",
+            "if (!state) {",
+            "    state = window.__pageState = {id: Date.now().toString(36) + Math.random().toString(36).slice(2), version: 0};",
+            "    new MutationObserver(function () { state.version++; }).observe(document, {childList: true, subtree: true});",
+            "}",
+            "var elements = [];",
+            "for (var i = 0; i < arguments[0].length; i++) {",
+            "    var element = document.evaluate(arguments[0][i], document, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue;",
+            "    if (!element) {",
+            "        elements.push(null);",
+            "        continue;",
+            "    }",
+            "    var style = window.getComputedStyle(element);",
+            "    var rect = element.getBoundingClientRect();",
+            "    var attributes = {};",
+            "    for (var j = 0; j < element.attributes.length; j++)",
+            "        attributes[element.attributes[j].name] = element.attributes[j].value;",
+            "    elements.push({element: arguments[1] ? element : null, text: element.innerText || element.textContent || '', attributes: attributes,",
+            "        visible: style.display !== 'none' && style.visibility !== 'hidden' && rect.width > 0 && rect.height > 0});",
+            "}",
+            "return {state: state.id + ':' + state.version, elements: elements};");
+
+    private static final Map<WebDriver, PageState> PAGE_STATES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Sources of the page class hierarchy are recorded as used by the current test, see -Dtestrun=impacted
+     */
+    protected BasePage() {
+        for (Class<?> page = getClass(); page != Object.class; page = page.getSuperclass())
+            TestHistory.recordUsage(page.getName().replace('.', '/') + ".java");
+    }
+
+    /**
+     * Manager owned by the thread calling the page, page objects may be shared between test threads
+     * @return TestManager of the current thread
+     */
+    protected TestManager getManager() {
+        return TestManager.getActualInstance();
+    }
+
+    /**
+     * WebDriver owned by the thread calling the page
+     * @return main WebDriver of the current thread
+     */
+    protected WebDriver getDriver() {
+        return getManager().getDriver();
+    }
 
     /**
      * Open by direct url
@@ -14,4 +101,178 @@ public abstract class BasePage {
      */
     public abstract BasePage openUrl();
 
+    /**
+     * Navigate and wait until the DOM is interactive, also with page load strategy none <br>
+     * The time is recorded in {@literal StepTimings} per browser profile, so profiles can be compared in the timings report
+     *
+     * @param url - page url
+     */
+    protected void open(String url) {
+        long start = System.nanoTime();
+        Selenide.open(url);
+        Poller.untilTrue(url + " is interactive", () -> Boolean.TRUE.equals(((JavascriptExecutor) getDriver())
+                .executeScript("return document.readyState !== 'loading' && location.href !== 'about:blank';")));
+        StepTimings.record("Open url until interactive (" + getManager().getProfile() + " profile)", System.nanoTime() - start);
+        invalidateLocators();
+    }
+
+    /**
+     * Read state of the elements in one browser round-trip, handles of found elements are cached
+     *
+     * @param locators - elements to read
+     * @return snapshot of all elements
+     */
+    @SuppressWarnings("unchecked")
+    protected DomSnapshot snapshot(Locator... locators) {
+        List<String> xpaths = new ArrayList<>(locators.length);
+        for (Locator locator : locators)
+            xpaths.add(locator.getXpath());
+        CdpChannel channel = getManager().getCdpChannel();
+        Map<String, Object> result = channel != null ? CdpElements.snapshot(channel, xpaths)
+                : (Map<String, Object>) ((JavascriptExecutor) getDriver()).executeScript(SNAPSHOT_SCRIPT, xpaths, true);
+        String pageState = (String) result.get("state");
+        List<Object> found = (List<Object>) result.get("elements");
+
+        PageState cache = pageState();
+        cache.moveTo(pageState);
+        Map<Locator, DomSnapshot.Element> elements = new LinkedHashMap<>();
+        for (int i = 0; i < locators.length; i++) {
+            Map<String, Object> element = (Map<String, Object>) found.get(i);
+            if (element == null) {
+                elements.put(locators[i], null);
+                cache.handles.remove(locators[i]);
+                continue;
+            }
+            WebElement handle = (WebElement) element.get("element");
+            Map<String, String> attributes = new HashMap<>();
+            for (Map.Entry<String, Object> attribute : ((Map<String, Object>) element.get("attributes")).entrySet())
+                attributes.put(attribute.getKey(), String.valueOf(attribute.getValue()));
+            boolean visible = Boolean.TRUE.equals(element.get("visible"));
+            elements.put(locators[i], new DomSnapshot.Element(handle, visible, (String) element.get("text"), attributes));
+            // actions take cached handles without checking them again
+            if (handle != null && visible)
+                cache.handles.put(locators[i], handle);
+            else
+                cache.handles.remove(locators[i]);
+        }
+        return new DomSnapshot(pageState, elements);
+    }
+
+    /**
+     * Wait until all elements are visible, each attempt is one snapshot of all of them
+     *
+     * @param locators - elements to wait for
+     * @return snapshot in which all elements are visible
+     */
+    protected DomSnapshot waitVisible(Locator... locators) {
+        DomSnapshot[] last = new DomSnapshot[1];
+        Poller.until(Arrays.toString(locators) + " should be visible", () -> {
+            last[0] = snapshot(locators);
+            String notVisible = last[0].notVisible(Arrays.asList(locators));
+            if (!notVisible.isEmpty())
+                throw new AssertionError("Not visible: " + notVisible);
+        });
+        return last[0];
+    }
+
+    /**
+     * Cached handle of the element, looked up when missing, waiting until it exists <br>
+     * Snapshots of the cdp transport have no handles, the element is then looked up by WebDriver
+     *
+     * @param locator - element
+     * @return WebElement of the current document
+     */
+    protected WebElement element(Locator locator) {
+        WebElement cached = pageState().handles.get(locator);
+        if (cached != null)
+            return cached;
+        boolean cdp = getManager().getCdpChannel() != null;
+        WebElement[] found = new WebElement[1];
+        Poller.until(locator + " should exist", () -> {
+            found[0] = cdp ? getDriver().findElement(By.xpath(locator.getXpath())) : snapshot(locator).handle(locator);
+            if (found[0] == null)
+                throw new NoSuchElementException("No element " + locator);
+        });
+        return found[0];
+    }
+
+    protected void click(Locator locator) {
+        act(locator, WebElement::click, CdpElements::click);
+    }
+
+    /**
+     * Type into a text field the way Selenide setValue does: clear, then send keys
+     */
+    protected void setValue(Locator locator, String value) {
+        act(locator, element -> {
+            element.clear();
+            if (value != null && !value.isEmpty())
+                element.sendKeys(value);
+        }, (channel, xpath) -> CdpElements.setValue(channel, xpath, value));
+    }
+
+    protected void scrollIntoView(Locator locator) {
+        act(locator, element -> ((JavascriptExecutor) getDriver()).executeScript("arguments[0].scrollIntoView(true);", element),
+                CdpElements::scrollIntoView);
+    }
+
+    /**
+     * Drop cached handles of the current browser, for navigations done outside of snapshots
+     */
+    protected void invalidateLocators() {
+        pageState().moveTo(null);
+    }
+
+    /**
+     * Act on the cached handle, otherwise poll until a snapshot shows the element visible and act on it, an action failing with
+     * a stale or not interactable element is retried the same way until the deadline <br>
+     * Over the DevTools channel each attempt checks visibility and acts in one script, see {@literal CdpElements}
+     *
+     * @param action    - action on the cached or looked up handle
+     * @param cdpAction - the same action over the DevTools channel, throws while the element is missing or not visible
+     */
+    private void act(Locator locator, Consumer<WebElement> action, BiConsumer<CdpChannel, String> cdpAction) {
+        CdpChannel channel = getManager().getCdpChannel();
+        if (channel != null) {
+            Poller.until(locator + " should be visible", () -> cdpAction.accept(channel, locator.getXpath()));
+            return;
+        }
+        WebElement cached = pageState().handles.get(locator);
+        if (cached != null) {
+            try {
+                action.accept(cached);
+                return;
+            } catch (StaleElementReferenceException | ElementNotInteractableException e) {
+                log.debug("Cached handle of " + locator + " can not be used (" + e.getClass().getSimpleName() + "), waiting until it is visible");
+                pageState().handles.remove(locator);
+            }
+        }
+        Poller.until(locator + " should be visible", () -> {
+            DomSnapshot snapshot = snapshot(locator);
+            requireVisible(snapshot, locator);
+            action.accept(snapshot.handle(locator));
+        });
+    }
+
+    private static void requireVisible(DomSnapshot snapshot, Locator locator) {
+        if (!snapshot.isPresent(locator))
+            throw new NoSuchElementException("No element " + locator);
+        if (!snapshot.isVisible(locator))
+            throw new ElementNotInteractableException("Not visible: " + locator);
+    }
+
+    private PageState pageState() {
+        return PAGE_STATES.computeIfAbsent(getDriver(), driver -> new PageState());
+    }
+
+    private static final class PageState {
+        private final Map<Locator, WebElement> handles = new ConcurrentHashMap<>();
+        private String current;
+
+        private synchronized void moveTo(String state) {
+            if (state == null || !state.equals(current))
+                handles.clear();
+            current = state;
+        }
+    }
 }
@@ -0,0 +1,155 @@
+package pages.base;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
+import core.CdpChannel;
+import org.openqa.selenium.ElementNotInteractableException;
+import org.openqa.selenium.JavascriptException;
+import org.openqa.selenium.NoSuchElementException;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Element actions of {@literal BasePage} over the DevTools channel of the session, see {@literal DriverTransport} <br>
+ * An element is found by its XPath, checked for visibility the way {@literal BasePage.SNAPSHOT_SCRIPT} does and acted on in one
+ * Runtime.evaluate, so no handle is kept between actions and a missing or hidden element costs one round-trip before a retry <br>
+ * Clicks and typing are dispatched as input events of the browser, like ChromeDriver does, not as synthetic DOM events
+ */
+final class CdpElements {
+
+    private static final Gson gson = new GsonBuilder().create();
+
+    private static final String MISSING = "missing";
+    private static final String HIDDEN = "hidden";
+
+    private static final String FIND_VISIBLE = String.join("\n",
+            "var element = document.evaluate(arguments[0], document, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue;",
+            "if (!element) return '" + MISSING + "';",
+            "var style = window.getComputedStyle(element);",
+            "var rect = element.getBoundingClientRect();",
+            "if (style.display === 'none' || style.visibility === 'hidden' || !(rect.width > 0 && rect.height > 0)) return '" + HIDDEN + "';");
+
+    /**
+     * Scroll the element into the viewport if needed, returns the viewport coordinates of its center
+     */
+    private static final String CENTER_SCRIPT = String.join("\n", FIND_VISIBLE,
+            "if (rect.top < 0 || rect.left < 0 || rect.bottom > window.innerHeight || rect.right > window.innerWidth) {",
+            "    element.scrollIntoView({block: 'center', inline: 'center'});",
+            "    rect = element.getBoundingClientRect();",
+            "}",
+            "return {x: rect.left + rect.width / 2, y: rect.top + rect.height / 2};");
+
+    /**
+     * Focus and empty a text field through the native value setter, so frameworks like React see the change <br>
+     * Only input and textarea are emptied, the setter of one prototype throws on other elements, e.g. select or button, which are focused only
+     */
+    private static final String CLEAR_SCRIPT = String.join("\n", FIND_VISIBLE,
+            "element.focus();",
+            "var prototype = element instanceof HTMLInputElement ? HTMLInputElement.prototype",
+            "        : element instanceof HTMLTextAreaElement ? HTMLTextAreaElement.prototype : null;",
+            "if (prototype) {",
+            "    Object.getOwnPropertyDescriptor(prototype, 'value').set.call(element, '');",
+            "    element.dispatchEvent(new Event('input', {bubbles: true}));",
+            "    element.dispatchEvent(new Event('change', {bubbles: true}));",
+            "}",
+            "return true;");
+
+    private static final String SCROLL_SCRIPT = String.join("\n", FIND_VISIBLE,
+            "element.scrollIntoView(true);",
+            "return true;");
+
+    private CdpElements() {
+    }
+
+    /**
+     * Same result as {@literal BasePage.SNAPSHOT_SCRIPT} run by WebDriver, without element handles
+     *
+     * @param channel - DevTools channel of the session
+     * @param xpaths  - elements to read
+     * @return page state and elements
+     */
+    static Map<String, Object> snapshot(CdpChannel channel, List<String> xpaths) {
+        JsonElement result = evaluate(channel, BasePage.SNAPSHOT_SCRIPT, xpaths, false);
+        return gson.fromJson(result, new TypeToken<Map<String, Object>>() {
+        }.getType());
+    }
+
+    /**
+     * One evaluate to find the element and its center, then mouse press and release sent back to back
+     *
+     * @throws NoSuchElementException          if no element matches the XPath
+     * @throws ElementNotInteractableException if the element is not visible
+     */
+    static void click(CdpChannel channel, String xpath) {
+        JsonObject center = visible(channel, CENTER_SCRIPT, xpath).getAsJsonObject();
+        Map<String, Object> pressed = new HashMap<>();
+        pressed.put("x", center.get("x").getAsDouble());
+        pressed.put("y", center.get("y").getAsDouble());
+        pressed.put("button", "left");
+        pressed.put("clickCount", 1);
+        pressed.put("type", "mousePressed");
+        Map<String, Object> released = new HashMap<>(pressed);
+        released.put("type", "mouseReleased");
+        channel.sendAll("Input.dispatchMouseEvent", List.of(pressed, released));
+    }
+
+    /**
+     * Clear the field and type the value, as {@literal BasePage.setValue} does over WebDriver
+     *
+     * @throws NoSuchElementException          if no element matches the XPath
+     * @throws ElementNotInteractableException if the element is not visible
+     */
+    static void setValue(CdpChannel channel, String xpath, String value) {
+        visible(channel, CLEAR_SCRIPT, xpath);
+        // typed only after the evaluate found and focused the field, text must not go to whatever else has the focus
+        if (value != null && !value.isEmpty())
+            channel.send("Input.insertText", Map.of("text", value));
+    }
+
+    /**
+     * @throws NoSuchElementException          if no element matches the XPath
+     * @throws ElementNotInteractableException if the element is not visible
+     */
+    static void scrollIntoView(CdpChannel channel, String xpath) {
+        visible(channel, SCROLL_SCRIPT, xpath);
+    }
+
+    /**
+     * Run an action script starting with {@literal FIND_VISIBLE}
+     *
+     * @return value returned by the script for a visible element
+     */
+    private static JsonElement visible(CdpChannel channel, String script, String xpath) {
+        JsonElement result = evaluate(channel, script, xpath);
+        if (result == null || result.isJsonPrimitive() && MISSING.equals(result.getAsString()))
+            throw new NoSuchElementException("No element " + xpath);
+        if (result.isJsonPrimitive() && HIDDEN.equals(result.getAsString()))
+            throw new ElementNotInteractableException("Not visible: " + xpath);
+        return result;
+    }
+
+    /**
+     * Run a script body the way {@literal JavascriptExecutor.executeScript} does, with {@literal arguments} and a returned value
+     *
+     * @return returned value as JSON, null for null or undefined
+     */
+    private static JsonElement evaluate(CdpChannel channel, String body, Object... arguments) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("expression", "(function () {\n" + body + "\n}).apply(null, " + gson.toJson(arguments) + ")");
+        params.put("returnByValue", true);
+        params.put("userGesture", true);
+        JsonObject response = channel.send("Runtime.evaluate", params);
+        if (response.has("exceptionDetails")) {
+            JsonObject details = response.getAsJsonObject("exceptionDetails");
+            JsonElement exception = details.has("exception") ? details.getAsJsonObject("exception").get("description") : null;
+            throw new JavascriptException(exception != null ? exception.getAsString() : details.get("text").getAsString());
+        }
+        JsonElement value = response.getAsJsonObject("result").get("value");
+        return value == null || value.isJsonNull() ? null : value;
+    }
+}
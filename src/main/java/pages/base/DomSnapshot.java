@@ -0,0 +1,100 @@
+package pages.base;
+
+import org.openqa.selenium.WebElement;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * State of several elements read by one JavaScript call, see {@literal BasePage.snapshot} <br>
+ * Presence, visibility, text and attributes of every locator are taken at the same moment, so checks on the snapshot
+ * cost no further browser round-trips
+ */
+public final class DomSnapshot {
+
+    private final String pageState;
+    private final Map<Locator, Element> elements;
+
+    DomSnapshot(String pageState, Map<Locator, Element> elements) {
+        this.pageState = pageState;
+        this.elements = Collections.unmodifiableMap(elements);
+    }
+
+    /**
+     * @return document id and DOM version at the time of the snapshot
+     */
+    public String getPageState() {
+        return pageState;
+    }
+
+    public boolean isPresent(Locator locator) {
+        return element(locator) != null;
+    }
+
+    /**
+     * @param locator - locator of the snapshot
+     * @return true if the element exists, is not hidden by CSS and has a size
+     */
+    public boolean isVisible(Locator locator) {
+        Element element = element(locator);
+        return element != null && element.visible;
+    }
+
+    /**
+     * @param locator - locator of the snapshot
+     * @return rendered text, null if the element does not exist
+     */
+    public String getText(Locator locator) {
+        Element element = element(locator);
+        return element == null ? null : element.text;
+    }
+
+    /**
+     * @param locator - locator of the snapshot
+     * @param name    - attribute name
+     * @return attribute value, null if the element or attribute does not exist
+     */
+    public String getAttribute(Locator locator, String name) {
+        Element element = element(locator);
+        return element == null ? null : element.attributes.get(name);
+    }
+
+    /**
+     * @param locators - locators of the snapshot
+     * @return names of the elements that are not visible, empty if all are
+     */
+    public String notVisible(List<Locator> locators) {
+        StringBuilder names = new StringBuilder();
+        for (Locator locator : locators) {
+            if (!isVisible(locator))
+                names.append(names.length() == 0 ? "" : ", ").append(locator.getName());
+        }
+        return names.toString();
+    }
+
+    WebElement handle(Locator locator) {
+        Element element = element(locator);
+        return element == null ? null : element.handle;
+    }
+
+    private Element element(Locator locator) {
+        if (!elements.containsKey(locator))
+            throw new IllegalArgumentException(locator + " is not part of the snapshot");
+        return elements.get(locator);
+    }
+
+    static final class Element {
+        private final WebElement handle;
+        private final boolean visible;
+        private final String text;
+        private final Map<String, String> attributes;
+
+        Element(WebElement handle, boolean visible, String text, Map<String, String> attributes) {
+            this.handle = handle;
+            this.visible = visible;
+            this.text = text;
+            this.attributes = attributes;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package pages.base;
+
+/**
+ * Named XPath of a page element, resolved lazily by {@literal BasePage} <br>
+ * Holds no element handle itself, so a locator may be a static field shared by pages, threads and browsers
+ */
+public final class Locator {
+
+    private final String name;
+    private final String xpath;
+
+    private Locator(String name, String xpath) {
+        this.name = name;
+        this.xpath = xpath;
+    }
+
+    /**
+     * @param name  - element name for logs and assertion messages
+     * @param xpath - XPath of the element, the first match is used
+     * @return locator
+     */
+    public static Locator xpath(String name, String xpath) {
+        return new Locator(name, xpath);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getXpath() {
+        return xpath;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + xpath + ")";
+    }
+}
@@ -0,0 +1,127 @@
+package Tests;
+
+import base.BaseTest;
+import core.json.JsonExpectations;
+import core.listeners.ClassListener;
+import org.hamcrest.BaseMatcher;
+import org.hamcrest.Description;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.*;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+
+
+@Listeners(ClassListener.class)
+public class JsonExpectations_Test extends BaseTest {
+
+    private static final String PET = "{\"id\":7,\"name\":\"Butch\",\"status\":\"available\","
+            + "\"category\":{\"id\":2,\"name\":\"Dogs\"},"
+            + "\"tags\":[{\"id\":11,\"name\":\"Guard\"},{\"id\":12,\"name\":\"Friendly\"}],"
+            + "\"photoUrls\":[\"https://placedog.net/640/480?id=1\"],"
+            + "\"history\":[[{\"id\":99,\"status\":\"sold\"}],[{\"id\":98}],[]]}";
+
+    private static final String LIST = "[{\"id\":1,\"status\":\"available\",\"tags\":[{\"id\":100}]},"
+            + "{\"id\":2,\"status\":\"available\",\"tags\":[]},"
+            + "{\"id\":3,\"status\":\"available\",\"tags\":[{\"id\":300},{\"id\":301}]}]";
+
+    @Test
+    public void checkNamesAndIndexes() {
+        JsonExpectations.create()
+                .expect("id", equalTo(7))
+                .expect("category.name", equalTo("Dogs"))
+                .expect("tags[1].name", equalTo("Friendly"))
+                .expect("tags[*].id", greaterThan(10))
+                .expect("history[0][0].status", equalTo("sold"))
+                .expect("history[1][0].id", equalTo(98))
+                .expect("photoUrls[0]", startsWith("https://placedog.net/"))
+                .verify(json(PET));
+    }
+
+    @Test
+    public void checkRootArray() {
+        JsonExpectations.create()
+                .expect("[*].status", equalTo("available"))
+                .expect("[2].tags[1].id", equalTo(301))
+                .expectAny("[*].id", equalTo(3))
+                .expectAny("[*].tags[*].id", equalTo(100))
+                .expectSize("", equalTo(3))
+                .expectSize("[*].tags", lessThanOrEqualTo(2))
+                .expectSize("[0].tags", equalTo(1))
+                .verify(json(LIST));
+    }
+
+    @Test
+    public void checkOnlyReachablePathsMatched() {
+        // ids of category, tags and history share the name but not the path, their subtrees are skipped unread
+        CountingMatcher ids = new CountingMatcher();
+        JsonExpectations.create()
+                .expect("id", ids)
+                .verify(json(PET));
+        assertEquals(ids.count, 1, "Values checked by an expectation of the top level id");
+
+        CountingMatcher statuses = new CountingMatcher();
+        JsonExpectations.create()
+                .expect("[*].status", statuses)
+                .verify(json(LIST));
+        assertEquals(statuses.count, 3, "Values checked by an expectation of every status of a list");
+    }
+
+    @Test
+    public void checkAllFailuresReportedTogether() {
+        JsonExpectations expectations = JsonExpectations.create()
+                .expect("id", equalTo(7))
+                .expect("name", equalTo("Rex"))
+                .expect("owner.name", equalTo("Bob"))
+                .expectAny("tags[*].id", equalTo(13))
+                .expectSize("tags", equalTo(3))
+                .expect("tags[*].name", equalTo("Guard"));
+
+        AssertionError error = expectThrows(AssertionError.class, () -> expectations.verify(json(PET)));
+        String message = error.getMessage();
+        assertTrue(message.startsWith("5 of 6 JSON expectations failed:"), message);
+        assertTrue(message.contains("'name' expected \"Rex\" but was \"Butch\""), message);
+        assertTrue(message.contains("'owner.name' not found, expected \"Bob\""), message);
+        assertTrue(message.contains("none of 2 values of 'tags[*].id' is <13>"), message);
+        assertTrue(message.contains("size of 'tags' expected <3> but was <2>"), message);
+        assertTrue(message.contains("'tags[*].name' expected \"Guard\" but was \"Friendly\" (1 of 2 values)"), message);
+        assertEquals(message.split("\n").length, 6, "Header and one line per failed expectation");
+    }
+
+    @Test
+    public void checkExpectationsReusable() {
+        JsonExpectations expectations = JsonExpectations.create().expectAny("[*].id", equalTo(2));
+        expectations.verify(json(LIST));
+        expectThrows(AssertionError.class, () -> expectations.verify(json("[{\"id\":1}]")));
+        expectations.verify(json(LIST));
+    }
+
+    @Test
+    public void checkBadPathRejected() {
+        expectThrows(IllegalArgumentException.class, () -> JsonExpectations.create().expect("tags[0.name", equalTo("Guard")));
+    }
+
+    private static ByteArrayInputStream json(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static final class CountingMatcher extends BaseMatcher<Object> {
+        private int count;
+
+        @Override
+        public boolean matches(Object item) {
+            count++;
+            return true;
+        }
+
+        @Override
+        public void describeTo(Description description) {
+            description.appendText("anything, counted");
+        }
+    }
+}
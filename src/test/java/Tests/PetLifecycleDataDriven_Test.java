@@ -0,0 +1,80 @@
+package Tests;
+
+import base.BaseTest;
+import core.listeners.ClassListener;
+import data.PetStream;
+import data.pojo.Pet;
+import io.qameta.allure.Allure;
+import org.apache.logging.log4j.LogManager;
+import org.testng.ITestContext;
+import org.testng.annotations.*;
+import pages.PetStorePage;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+
+/**
+ * Replays pets of a fixture file (-Dpets.file, JSONL or CSV) through create, verify, update and delete <br>
+ * Each data-provider thread works through its own shard of the file, see PetStream <br>
+ * Every pet is reported on its own, as an Allure step holding the page object steps of the pet and as a line of the test output,
+ * a failed pet does not stop the shard
+ */
+@Listeners(ClassListener.class)
+public class PetLifecycleDataDriven_Test extends BaseTest {
+
+    private static final org.apache.logging.log4j.Logger log = LogManager.getLogger(PetLifecycleDataDriven_Test.class);
+
+    @DataProvider(name = "pets", parallel = true)
+    public Iterator<Object[]> pets(ITestContext context) {
+        String file = System.getProperty("pets.file", "data/pets.jsonl");
+        int readAhead = Integer.getInteger("pets.readAhead", 256);
+        int shards = context.getSuite().getXmlSuite().getDataProviderThreadCount();
+        return PetStream.open(file, readAhead).shards(shards);
+    }
+
+    @Test(dataProvider = "pets")
+    public void petLifecycle(PetStream.Shard shard) {
+        List<String> failures = new ArrayList<>();
+        int count = 0;
+        for (Pet pet : shard) {
+            count++;
+            PetStorePage[] page = new PetStorePage[1];
+            boolean[] deleted = new boolean[1];
+            try {
+                // the step is marked failed or broken with its own error, then the next pet runs
+                Allure.step("Lifecycle of pet " + pet.getId(), () -> {
+                    page[0] = new PetStorePage(pet);
+                    page[0].seedTestData()
+                            .checkNewIDExist()
+                            .updatePetData()
+                            .checkUpdatedPetData()
+                            .deletePetDataFromStore();
+                    deleted[0] = true;
+                });
+                log.info("Pet " + pet.getId() + " passed");
+            } catch (AssertionError | RuntimeException e) {
+                log.error("Pet " + pet.getId() + " failed: " + e.getMessage());
+                failures.add("pet " + pet.getId() + ": " + e.getMessage());
+            } finally {
+                if (page[0] != null && !deleted[0])
+                    removeSeededPet(page[0], pet);
+            }
+        }
+        if (!failures.isEmpty())
+            throw new AssertionError(failures.size() + " of " + count + " pets failed in " + shard + "\n" + String.join("\n", failures));
+    }
+
+    /**
+     * A pet whose lifecycle failed before its delete step is removed, so failed runs leave nothing in the shared Pet Store,
+     * a pet the failed step deleted already is skipped (404)
+     */
+    private static void removeSeededPet(PetStorePage page, Pet pet) {
+        try {
+            page.removeSeededData();
+        } catch (AssertionError | RuntimeException e) {
+            log.warn("Could not remove pet " + pet.getId() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package Tests;
+
+import base.BaseTest;
+import core.listeners.ClassListener;
+import org.testng.annotations.*;
+import pages.PetStorePage;
+
+
+@Listeners(ClassListener.class)
+public class PetStoreApi_Test extends BaseTest {
+
+    private PetStorePage petStorePage;
+
+    @BeforeClass
+    public void seedPet() {
+        petStorePage = new PetStorePage().seedTestData();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void removeSeededPets() {
+        if (petStorePage != null)
+            petStorePage.removeSeededData();
+    }
+
+    @Test(priority = 1)
+    public void checkNewPet() {
+        petStorePage.checkNewIDExist();
+    }
+
+    @Test(priority = 1)
+    public void checkPetListedByStatus() {
+        petStorePage.checkPetListedByStatus();
+    }
+
+    @Test(priority = 2)
+    public void petDataUpdate() {
+        petStorePage.updatePetData();
+    }
+
+    @Test(priority = 3)
+    public void checkPetUpdatedData() {
+        petStorePage.checkUpdatedPetData();
+    }
+
+    @Test(priority = 4)
+    public void deletePetData() {
+        petStorePage.deletePetDataFromStore();
+    }
+
+    @Test(priority = 5)
+    public void deleteNonExistentPet() {
+        petStorePage.deleteNonExistentPetData();
+    }
+}
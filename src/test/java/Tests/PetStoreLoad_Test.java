@@ -0,0 +1,37 @@
+package Tests;
+
+import base.BaseTest;
+import core.listeners.ClassListener;
+import core.load.LoadReport;
+import core.load.LoadRunner;
+import data.PetGenerator;
+import org.testng.Assert;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+import pages.PetStorePage;
+
+@Listeners(ClassListener.class)
+public class PetStoreLoad_Test extends BaseTest {
+
+    private static final double MAX_ERROR_RATE = Double.parseDouble(System.getProperty("load.maxErrorRate", "0.01"));
+    private static final long MAX_P99_MS = Long.getLong("load.maxP99", 0L);
+
+    @Test
+    public void petLifecycleUnderLoad() {
+        // iterations are numbered from 0, a stream of their own keeps them clear of pets the test thread generates with next()
+        PetGenerator generator = PetGenerator.forNewStream();
+
+        LoadReport report = LoadRunner.fromSystemProperties("pet lifecycle").run(iteration ->
+                new PetStorePage(generator.pet(iteration))
+                        .addPetData()
+                        .checkNewIDExist()
+                        .updatePetData()
+                        .checkUpdatedPetData()
+                        .deletePetDataFromStore());
+
+        Assert.assertTrue(report.getIterations() > 0, "No iteration finished");
+        Assert.assertTrue(report.getErrorRate() <= MAX_ERROR_RATE, "Error rate " + report.getErrorRate() + " is above " + MAX_ERROR_RATE + "\n" + report);
+        if (MAX_P99_MS > 0)
+            Assert.assertTrue(report.getPercentileMillis(99) <= MAX_P99_MS, "p99 latency is above " + MAX_P99_MS + " ms\n" + report);
+    }
+}
@@ -0,0 +1,91 @@
+package Tests;
+
+import base.BaseTest;
+import core.listeners.ClassListener;
+import core.listeners.TestHistory;
+import core.reporter.ShardMerge;
+import org.testng.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+
+@Listeners(ClassListener.class)
+public class ShardMerge_Test extends BaseTest {
+
+    private Path workDir;
+    private Path historyDir;
+
+    @BeforeClass
+    public void mergeTwoShards() throws IOException {
+        workDir = Files.createTempDirectory("shard-merge");
+        historyDir = Files.createDirectories(workDir.resolve("history"));
+        TestHistory.write(historyDir.resolve(TestHistory.DURATIONS_FILE), Map.of("A#old", "100", "B#first", "500"));
+        TestHistory.write(historyDir.resolve(TestHistory.RESULTS_FILE), Map.of("A#old", TestHistory.PASSED, "A#first", TestHistory.FAILED));
+        TestHistory.write(historyDir.resolve(TestHistory.USAGE_FILE), Map.of("A", "pages/Old.java"));
+
+        // every shard dir carries a stale copy of the base history next to what the shard recorded
+        Path first = Files.createDirectories(workDir.resolve("shards/shard-1/.test-history"));
+        TestHistory.write(first.resolve(TestHistory.DURATIONS_FILE), Map.of("B#first", "9999"));
+        TestHistory.write(first.resolve(TestHistory.shardFileName(TestHistory.DURATIONS_FILE, 1, 2)), Map.of("A#first", "200"));
+        TestHistory.write(first.resolve(TestHistory.shardFileName(TestHistory.RESULTS_FILE, 1, 2)), Map.of("A#first", TestHistory.PASSED,
+                "A#second", TestHistory.FAILED));
+        TestHistory.write(first.resolve(TestHistory.shardFileName(TestHistory.USAGE_FILE, 1, 2)), Map.of("A", "data/pets.jsonl,pages/A.java"));
+
+        Path second = Files.createDirectories(workDir.resolve("shards/shard-2/.test-history"));
+        TestHistory.write(second.resolve(TestHistory.DURATIONS_FILE), Map.of("A#first", "9999"));
+        TestHistory.write(second.resolve(TestHistory.shardFileName(TestHistory.DURATIONS_FILE, 2, 2)), Map.of("B#first", "300"));
+        TestHistory.write(second.resolve(TestHistory.shardFileName(TestHistory.RESULTS_FILE, 2, 2)), Map.of("B#first", TestHistory.PASSED,
+                "A#second", TestHistory.PASSED));
+        TestHistory.write(second.resolve(TestHistory.shardFileName(TestHistory.USAGE_FILE, 2, 2)), Map.of("A", "pages/A.java,pages/Base.java",
+                "B", "pages/B.java"));
+
+        ShardMerge.merge(workDir.resolve("shards"), workDir.resolve("merged"), historyDir);
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void removeWorkDir() throws IOException {
+        if (workDir == null)
+            return;
+        try (Stream<Path> files = Files.walk(workDir)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator)
+                Files.delete(file);
+        }
+    }
+
+    @Test
+    public void checkUpdatesOfBothShardsKept() {
+        Map<String, String> durations = TestHistory.read(historyDir.resolve(TestHistory.DURATIONS_FILE));
+        assertEquals(durations.get("A#first"), "200", "Duration recorded by shard 1");
+        assertEquals(durations.get("B#first"), "300", "Duration recorded by shard 2");
+        assertEquals(durations.get("A#old"), "100", "Duration of a method no shard ran");
+    }
+
+    @Test
+    public void checkFailureOfOneShardKept() {
+        Map<String, String> results = TestHistory.read(historyDir.resolve(TestHistory.RESULTS_FILE));
+        assertEquals(results.get("A#second"), TestHistory.FAILED, "Method failed in shard 1 and passed in shard 2");
+        assertEquals(results.get("A#first"), TestHistory.PASSED, "Method failed before and passed in shard 1");
+        assertEquals(results.get("B#first"), TestHistory.PASSED, "Result recorded by shard 2");
+    }
+
+    @Test
+    public void checkUsageJoined() {
+        Map<String, String> usage = TestHistory.read(historyDir.resolve(TestHistory.USAGE_FILE));
+        assertEquals(usage.get("A"), "data/pets.jsonl,pages/A.java,pages/Base.java", "Files used by A in both shards");
+        assertEquals(usage.get("B"), "pages/B.java", "Files used by B");
+    }
+
+    @Test
+    public void checkBaseCopiesIgnored() {
+        assertFalse(TestHistory.read(historyDir.resolve(TestHistory.DURATIONS_FILE)).containsValue("9999"),
+                "Copies of the base history in a shard dir are not merged");
+    }
+}